@@ -0,0 +1,86 @@
+package br.ufma.ecp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import br.ufma.ecp.token.TokenType;
+
+// classificacao de todas as palavras do SquareGame.jack: switch sobre os bytes x HashMap<String, TokenType>
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeywordBenchmark {
+
+    private static final Map<String, TokenType> keywords = new HashMap<>();
+
+    static {
+        for (TokenType type : TokenType.values()) {
+            if (TokenType.isKeyword(type)) {
+                keywords.put(TokenType.lexeme(type), type);
+            }
+        }
+    }
+
+    private ByteBuffer input;
+    private int[] starts;
+    private int[] lengths;
+
+    @Setup
+    public void setup() throws IOException {
+        input = ByteBuffer.wrap(Files.readAllBytes(Paths.get("src/test/resources/Square/SquareGame.jack")));
+
+        var tokens = new Scanner(input).tokenize();
+        int words = 0;
+        starts = new int[tokens.size()];
+        lengths = new int[tokens.size()];
+        for (int i = 0; i < tokens.size(); i++) {
+            TokenType type = tokens.type(i);
+            if (type == TokenType.IDENT || TokenType.isKeyword(type)) {
+                starts[words] = tokens.offset(i);
+                lengths[words] = tokens.length(i);
+                words++;
+            }
+        }
+        starts = Arrays.copyOf(starts, words);
+        lengths = Arrays.copyOf(lengths, words);
+    }
+
+    @Benchmark
+    public void byteSwitch(Blackhole bh) {
+        for (int i = 0; i < starts.length; i++) {
+            bh.consume(Scanner.keyword(input, starts[i], lengths[i]));
+        }
+    }
+
+    @Benchmark
+    public void hashMap(Blackhole bh) {
+        for (int i = 0; i < starts.length; i++) {
+            String id = new String(input.array(), starts[i], lengths[i], StandardCharsets.UTF_8);
+            TokenType type = keywords.get(id);
+            bh.consume(type == null ? TokenType.IDENT : type);
+        }
+    }
+
+}
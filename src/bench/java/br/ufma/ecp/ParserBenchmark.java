@@ -0,0 +1,64 @@
+package br.ufma.ecp;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.ufma.ecp.ast.AstParser;
+
+// compilacao completa (parseClass) dos exemplos e de uma classe grande, com e sem a saida XML,
+// e o mesmo pelo caminho AstParser + CodeGenerator.
+// para o custo por token, divida gc.alloc.rate.norm pelo numero de tokens impresso no setup.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"Square/Square.jack", "Square/SquareGame.jack", "ExpressionLessSquare/SquareGame.jack", Sources.LARGE})
+    public String source;
+
+    @Param({"true", "false"})
+    public boolean xml;
+
+    private byte[] input;
+
+    @Setup
+    public void setup() {
+        input = Sources.load(source);
+
+        var tokens = new Scanner(input).tokenize();
+        System.out.println("tokens: " + tokens.size());
+    }
+
+    @Benchmark
+    public String parseClass() {
+        var parser = new Parser(input);
+        parser.enableXML(xml);
+        parser.parseClass();
+        return parser.VMOutput();
+    }
+
+    // tokenize + Ast + CodeGenerator; o parametro xml nao se aplica
+    @Benchmark
+    public String ast() {
+        var parser = new AstParser(new Scanner(input).tokenize());
+        int root = parser.parseClass();
+        var generator = new CodeGenerator(parser.ast(), new VMWriter());
+        generator.generate(root);
+        return generator.vmOutput();
+    }
+
+}
@@ -0,0 +1,54 @@
+package br.ufma.ecp;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import br.ufma.ecp.token.Token;
+import br.ufma.ecp.token.TokenBuffer;
+import br.ufma.ecp.token.TokenType;
+
+// varredura completa de um fonte: Token a Token com nextToken() e em spans com tokenize()
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScannerBenchmark {
+
+    @Param({"Square/SquareGame.jack", Sources.LARGE, Sources.COMMENTED})
+    public String source;
+
+    private byte[] input;
+
+    @Setup
+    public void setup() {
+        input = Sources.load(source);
+    }
+
+    @Benchmark
+    public void nextToken(Blackhole bh) {
+        var scanner = new Scanner(input);
+        for (Token tk = scanner.nextToken(); tk.type != TokenType.EOF; tk = scanner.nextToken()) {
+            bh.consume(tk);
+        }
+    }
+
+    @Benchmark
+    public TokenBuffer tokenize() {
+        return new Scanner(input).tokenize();
+    }
+
+}
@@ -0,0 +1,73 @@
+package br.ufma.ecp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+// fontes Jack para os benchmarks: exemplos do Nand2Tetris em src/test/resources e classes sinteticas
+class Sources {
+
+    static final String LARGE = "large";
+    static final String COMMENTED = "commented";
+
+    // "large" gera uma classe com 200 subrotinas e "commented" a mesma classe cheia de comentarios;
+    // outros nomes sao lidos de src/test/resources
+    static byte[] load(String name) {
+        if (name.equals(LARGE)) {
+            return largeClass(200).getBytes(StandardCharsets.UTF_8);
+        }
+        if (name.equals(COMMENTED)) {
+            return commented(largeClass(200)).getBytes(StandardCharsets.UTF_8);
+        }
+        try {
+            return Files.readAllBytes(Paths.get("src/test/resources/" + name));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // uma classe com n subrotinas, cada uma com lets, if/else, while e chamadas
+    static String largeClass(int subroutines) {
+        var sb = new StringBuilder();
+        sb.append("class Large {\n");
+        sb.append("    field int x, y, size;\n");
+        sb.append("    static int count;\n\n");
+        for (int i = 0; i < subroutines; i++) {
+            sb.append("    method int compute").append(i).append("(int a, int b) {\n");
+            sb.append("        var int i, sum;\n");
+            sb.append("        let i = 0;\n");
+            sb.append("        let sum = a + (b * ").append(i % 7 + 2).append(");\n");
+            sb.append("        while (i < 10) {\n");
+            sb.append("            if ((sum > 100) & (x < size)) {\n");
+            sb.append("                let sum = sum - ").append(i).append(";\n");
+            sb.append("                do Output.printString(\"compute").append(i).append("\");\n");
+            sb.append("            } else {\n");
+            sb.append("                let sum = sum + Math.max(a, b);\n");
+            sb.append("            }\n");
+            sb.append("            let i = i + 1;\n");
+            sb.append("        }\n");
+            sb.append("        do draw(sum, ~(y = 0));\n");
+            sb.append("        return sum / 2;\n");
+            sb.append("    }\n\n");
+        }
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    // cabecalho de licenca e um bloco de documentacao antes de cada subrotina, como em codigo gerado
+    static String commented(String source) {
+        var header = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            header.append("// This file is part of the generated sources. Do not edit by hand.\n");
+        }
+        var doc = new StringBuilder("    /**\n");
+        for (int i = 0; i < 8; i++) {
+            doc.append("     * Computes the running sum of a and b over ten iterations.\n");
+        }
+        doc.append("     */\n    method");
+        return header + source.replace("    method", doc.toString());
+    }
+
+}
@@ -0,0 +1,72 @@
+package br.ufma.ecp;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import br.ufma.ecp.SymbolTable.Kind;
+
+// resolve: nomes locais, de classe e desconhecidos (classes e subrotinas), como aparecem nas expressoes.
+// subroutine: startSubroutine + declaracoes + resolucoes de uma subrotina tipica.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SymbolTableBenchmark {
+
+    private static final String[] FIELDS = {"x", "y", "size", "direction", "square"};
+    private static final String[] LOCALS = {"i", "j", "sum", "key", "exit"};
+    private static final String[] ARGS = {"this", "a", "b"};
+    private static final String[] LOOKUPS = {
+        "i", "x", "sum", "Output", "a", "size", "key", "Math", "j", "square", "b", "moveUp", "exit", "y", "this", "direction"
+    };
+
+    private SymbolTable symTable;
+    private String[] lookups;
+
+    @Setup
+    public void setup() {
+        symTable = new SymbolTable();
+        for (String name : FIELDS) symTable.define(name, "int", Kind.FIELD);
+        symTable.startSubroutine();
+        for (String name : ARGS) symTable.define(name, "int", Kind.ARG);
+        for (String name : LOCALS) symTable.define(name, "int", Kind.VAR);
+
+        // copias novas, como as que o Scanner produz para cada ocorrencia
+        lookups = new String[LOOKUPS.length];
+        for (int i = 0; i < LOOKUPS.length; i++) lookups[i] = new String(LOOKUPS[i]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(16)
+    public void resolve(Blackhole bh) {
+        for (String name : lookups) {
+            bh.consume(symTable.resolve(name));
+        }
+    }
+
+    @Benchmark
+    public void subroutine(Blackhole bh) {
+        symTable.startSubroutine();
+        for (String name : ARGS) symTable.define(name, "int", Kind.ARG);
+        for (String name : LOCALS) symTable.define(name, "int", Kind.VAR);
+        for (String name : lookups) {
+            bh.consume(symTable.resolve(name));
+        }
+        bh.consume(symTable.varCount(Kind.VAR));
+    }
+
+}
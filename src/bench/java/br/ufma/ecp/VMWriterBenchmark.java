@@ -0,0 +1,119 @@
+package br.ufma.ecp;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.ufma.ecp.VMWriter.Command;
+import br.ufma.ecp.VMWriter.Segment;
+
+// reemite as instrucoes de uma classe grande gerada; score em instrucoes por segundo.
+// formatted reproduz o emissor antigo baseado em String.format para comparacao.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VMWriterBenchmark {
+
+    static final int INSTRUCTIONS = 50_000;
+
+    private static final int PUSH = 0, POP = 1, ARITHMETIC = 2, LABEL = 3, GOTO = 4, IF = 5, CALL = 6,
+            FUNCTION = 7, RETURN = 8;
+
+    private int[] ops = new int[INSTRUCTIONS];
+    private Object[] names = new Object[INSTRUCTIONS];
+    private int[] args = new int[INSTRUCTIONS];
+
+    @Setup(Level.Trial)
+    public void setup() {
+        var parser = new Parser(Sources.largeClass(200).getBytes(StandardCharsets.UTF_8));
+        parser.parser();
+        String[] lines = parser.VMOutput().split("\n");
+
+        for (int i = 0; i < INSTRUCTIONS; i++) {
+            String[] parts = lines[i % lines.length].split(" ");
+            switch (parts[0]) {
+                case "push", "pop" -> {
+                    ops[i] = parts[0].equals("push") ? PUSH : POP;
+                    names[i] = segment(parts[1]);
+                    args[i] = Integer.parseInt(parts[2]);
+                }
+                case "label" -> { ops[i] = LABEL; names[i] = parts[1]; }
+                case "goto" -> { ops[i] = GOTO; names[i] = parts[1]; }
+                case "if-goto" -> { ops[i] = IF; names[i] = parts[1]; }
+                case "call", "function" -> {
+                    ops[i] = parts[0].equals("call") ? CALL : FUNCTION;
+                    names[i] = parts[1];
+                    args[i] = Integer.parseInt(parts[2]);
+                }
+                case "return" -> ops[i] = RETURN;
+                default -> {
+                    ops[i] = ARITHMETIC;
+                    names[i] = Command.valueOf(parts[0].toUpperCase());
+                }
+            }
+        }
+    }
+
+    private static Segment segment(String value) {
+        for (Segment segment : Segment.values()) {
+            if (segment.value.equals(value)) return segment;
+        }
+        throw new IllegalArgumentException(value);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSTRUCTIONS)
+    public String direct() {
+        var vmWriter = new VMWriter();
+        for (int i = 0; i < INSTRUCTIONS; i++) {
+            switch (ops[i]) {
+                case PUSH -> vmWriter.writePush((Segment) names[i], args[i]);
+                case POP -> vmWriter.writePop((Segment) names[i], args[i]);
+                case ARITHMETIC -> vmWriter.writeArithmetic((Command) names[i]);
+                case LABEL -> vmWriter.writeLabel((String) names[i]);
+                case GOTO -> vmWriter.writeGoto((String) names[i]);
+                case IF -> vmWriter.writeIf((String) names[i]);
+                case CALL -> vmWriter.writeCall((String) names[i], args[i]);
+                case FUNCTION -> vmWriter.writeFunction((String) names[i], args[i]);
+                default -> vmWriter.writeReturn();
+            }
+        }
+        return vmWriter.vmOutput();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSTRUCTIONS)
+    public String formatted() {
+        var vmOutput = new StringBuilder();
+        for (int i = 0; i < INSTRUCTIONS; i++) {
+            switch (ops[i]) {
+                case PUSH -> vmOutput.append(String.format("push %s %d\n", ((Segment) names[i]).value, args[i]));
+                case POP -> vmOutput.append(String.format("pop %s %d\n", ((Segment) names[i]).value, args[i]));
+                case ARITHMETIC -> vmOutput.append(String.format("%s\n", ((Command) names[i]).name().toLowerCase()));
+                case LABEL -> vmOutput.append(String.format("label %s\n", names[i]));
+                case GOTO -> vmOutput.append(String.format("goto %s\n", names[i]));
+                case IF -> vmOutput.append(String.format("if-goto %s\n", names[i]));
+                case CALL -> vmOutput.append(String.format("call %s %d\n", names[i], args[i]));
+                case FUNCTION -> vmOutput.append(String.format("function %s %d\n", names[i], args[i]));
+                default -> vmOutput.append(String.format("return\n"));
+            }
+        }
+        return vmOutput.toString();
+    }
+
+}
@@ -1,47 +1,158 @@
 package br.ufma.ecp;
 
-import static br.ufma.ecp.token.TokenType.*;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
 
-
-
-import br.ufma.ecp.token.Token; 
-
-public class App 
+public class App
 {
+    private static final long CACHE_SIZE = 64L * 1024 * 1024;
+    private static final long MAX_INSTRUCTIONS = 1_000_000_000L;
+    private static final int PROFILE_LINES = 10;
+    private static final Path SOCKET = Path.of(System.getProperty("java.io.tmpdir"),
+            "jackc-" + System.getProperty("user.name") + ".sock");
 
-    
-    public static void main( String[] args )
+    private static final String USAGE = """
+        uso: java br.ufma.ecp.App [-O] [-Ostrings] [-ast] [-bin] [-prune] [-asm | -run] [-cache <diretorio>] [-local] <arquivo.jack | diretorio> ...
+             java br.ufma.ecp.App -daemon | -stop""";
+
+    public static void main( String[] args ) throws IOException
     {
-        
-    
-        String input = "289";
-        Scanner scan = new Scanner (input.getBytes());
-        System.out.println(scan.nextToken());
+        if (args.length == 0) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
 
+        if (args[0].equals("-daemon")) {
+            new CompilerDaemon(SOCKET).serve();
+            return;
+        }
+        if (args[0].equals(CompilerDaemon.STOP)) {
+            if (DaemonClient.compile(SOCKET, List.of(CompilerDaemon.STOP), System.out) == DaemonClient.NOT_RUNNING) {
+                System.err.println("nenhum daemon em " + SOCKET);
+            }
+            return;
+        }
 
-        for (Token tk = scan.nextToken(); tk.type != EOF; tk = scan.nextToken()) {
-            System.out.println(tk);
+        // com um daemon no ar o build roda nele; senao, aqui mesmo
+        var argList = new ArrayList<>(Arrays.asList(args));
+        if (!argList.remove("-local")) {
+            int status = DaemonClient.compile(SOCKET, argList, System.out);
+            if (status != DaemonClient.NOT_RUNNING) {
+                System.exit(status);
+            }
         }
+        System.exit(run(argList, System.out));
+    }
 
-        /*
-        Parser p = new Parser (input.getBytes());
-        p.parse();
-        */
+    // compila e imprime o resumo em out; tambem usado pelo CompilerDaemon a cada pedido
+    // devolve o status do build: 1 se algum arquivo tem erro
+    static int run(List<String> args, PrintStream out) throws IOException {
+        var paths = new ArrayList<Path>();
+        var optimizations = EnumSet.noneOf(Optimization.class);
+        var ast = false;
+        var asm = false;
+        var execute = false;
+        var binary = false;
+        var prune = false;
+        CompilationCache cache = null;
+        for (int i = 0; i < args.size(); i++) {
+            if (args.get(i).equals("-O")) {
+                // STRING_POOL muda o sentido de codigo que altera ou descarta um literal: so com -Ostrings
+                optimizations.addAll(EnumSet.complementOf(EnumSet.of(Optimization.STRING_POOL)));
+            } else if (args.get(i).equals("-Ostrings")) {
+                optimizations.add(Optimization.STRING_POOL);
+            } else if (args.get(i).equals("-ast")) {
+                ast = true;
+            } else if (args.get(i).equals("-asm")) {
+                asm = true;
+            } else if (args.get(i).equals("-run")) {
+                execute = true;
+            } else if (args.get(i).equals("-bin")) {
+                binary = true;
+            } else if (args.get(i).equals("-prune")) {
+                prune = true;
+            } else if (args.get(i).equals("-cache")) {
+                // sem o diretorio o build nao roda: seguir sem cache esconderia o erro
+                if (i + 1 == args.size()) {
+                    out.println(USAGE);
+                    return 1;
+                }
+                cache = new CompilationCache(Path.of(args.get(++i)), CACHE_SIZE);
+            } else {
+                paths.add(Path.of(args.get(i)));
+            }
+        }
 
+        var compiler = new JackCompiler(Runtime.getRuntime().availableProcessors(), optimizations, ast);
+        compiler.useCache(cache);
+        compiler.enableRecovery(true);
+        compiler.emitBinary(binary);
+        compiler.eliminateUnused(prune);
+        if (asm && !paths.isEmpty()) {
+            compiler.assembleTo(program(paths.get(0)));
+        }
+        long start = System.nanoTime();
+        int status = 0;
+        List<JackCompiler.Result> results;
+        try {
+            results = compiler.compile(paths);
+            for (var result : results) {
+                if (!result.errors().isEmpty()) {
+                    for (String error : result.errors()) {
+                        out.printf("%s: %s%n", result.source(), error);
+                    }
+                    status = 1;
+                    continue;
+                }
+                out.printf("%s -> %s %.3f ms%n", result.source(), result.output().getFileName(),
+                        result.nanos() / 1e6);
+            }
+        } finally {
+            compiler.shutdown();
+        }
+        out.printf("total %.3f ms%n", (System.nanoTime() - start) / 1e6);
+        if (cache != null) {
+            out.printf("cache: %d hits, %d misses%n", cache.hits(), cache.misses());
+        }
+        if (execute && !asm && status == 0) {
+            status = execute(results, out);
+        }
+        return status;
+    }
 
-        //Parser p = new Parser (fromFile().getBytes());
-        //p.parse();
+    // roda o programa no VMInterpreter e imprime a saida e as instrucoes executadas por funcao;
+    // sem ponto de entrada ou com falha em tempo de execucao imprime o erro e devolve 1
+    private static int execute(List<JackCompiler.Result> results, PrintStream out) throws IOException {
+        var vm = new VMInterpreter();
+        try {
+            for (var result : results) {
+                vm.load(result.output());
+            }
+            vm.run(vm.hasFunction("Sys.init") ? "Sys.init" : "Main.main", MAX_INSTRUCTIONS);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            out.println(vm.output());
+            out.printf("run: %s%n", e.getMessage());
+            return 1;
+        }
+        out.println(vm.output());
+        out.printf("%d instrucoes VM%n", vm.instructions());
+        vm.profile().entrySet().stream().limit(PROFILE_LINES)
+                .forEach(entry -> out.printf("%12d %s%n", entry.getValue(), entry.getKey()));
+        return 0;
+    }
 
-        /*
-        String input = "489-85+69";
-        Scanner scan = new Scanner (input.getBytes());
-        System.out.println(scan.nextToken());
-        System.out.println(scan.nextToken());
-        System.out.println(scan.nextToken());
-        System.out.println(scan.nextToken());
-        System.out.println(scan.nextToken());
-        Token tk = new Token(NUMBER, "42");
-        System.out.println(tk);
-        */
+    // como no tradutor VM do Nand2Tetris: Dir/Dir.asm para um diretorio, Arquivo.asm para um arquivo
+    static Path program(Path path) {
+        var name = path.toAbsolutePath().normalize().getFileName().toString();
+        if (Files.isDirectory(path)) {
+            return path.resolve(name + ".asm");
+        }
+        return path.resolveSibling(name.substring(0, name.lastIndexOf('.')) + ".asm");
     }
 }
@@ -0,0 +1,131 @@
+package br.ufma.ecp;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import br.ufma.ecp.Instruction.Op;
+import br.ufma.ecp.VMWriter.Command;
+import br.ufma.ecp.VMWriter.Segment;
+
+// Le o formato do BinaryVMWriter e repassa cada instrucao a um VMWriter de destino: o VMWriter de
+// texto, o HackWriter ou o VMInterpreter.writer(). Nenhum texto e analisado no caminho.
+public class BinaryVMReader {
+
+    private static final Op[] OPS = Op.values();
+    private static final Segment[] SEGMENTS = Segment.values();
+    private static final Command[] COMMANDS = Command.values();
+
+    private final ByteBuffer input;
+    private final List<String> names = new ArrayList<>();
+    private int start; // inicio da instrucao atual, para as mensagens de erro
+
+    private BinaryVMReader(ByteBuffer input) {
+        this.input = input.slice();
+    }
+
+    public static boolean isBinary(ByteBuffer input) {
+        if (input.remaining() < BinaryVMWriter.MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < BinaryVMWriter.MAGIC.length; i++) {
+            if (input.get(input.position() + i) != BinaryVMWriter.MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static void read(Path file, VMWriter target) throws IOException {
+        read(Scanner.map(file), target);
+    }
+
+    // nao mexe na posicao de input; o destino nao e descarregado
+    public static void read(ByteBuffer input, VMWriter target) {
+        if (!isBinary(input)) {
+            throw new IllegalArgumentException("not a binary VM file");
+        }
+        new BinaryVMReader(input).replay(target);
+    }
+
+    private void replay(VMWriter target) {
+        input.position(BinaryVMWriter.MAGIC.length);
+        int version = input.get();
+        if (version != BinaryVMWriter.VERSION) {
+            throw new IllegalArgumentException("unsupported binary VM version " + version);
+        }
+        try {
+            while (input.hasRemaining()) {
+                start = input.position();
+                int opcode = input.get() & 0xFF;
+                int operand = opcode & 0xF;
+                switch (OPS[opcode >>> 4]) {
+                    case PUSH:
+                        target.writePush(SEGMENTS[operand], varint());
+                        break;
+                    case POP:
+                        target.writePop(SEGMENTS[operand], varint());
+                        break;
+                    case ARITHMETIC:
+                        target.writeArithmetic(COMMANDS[operand]);
+                        break;
+                    case LABEL:
+                        target.writeLabel(name());
+                        break;
+                    case GOTO:
+                        target.writeGoto(name());
+                        break;
+                    case IF_GOTO:
+                        target.writeIf(name());
+                        break;
+                    case CALL:
+                        target.writeCall(name(), varint());
+                        break;
+                    case FUNCTION:
+                        target.writeFunction(name(), varint());
+                        break;
+                    case RETURN:
+                        target.writeReturn();
+                        break;
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated binary VM file");
+        } catch (ArrayIndexOutOfBoundsException | NegativeArraySizeException e) {
+            // opcode fora das tabelas ou tamanho de nome invalido
+            throw new IllegalArgumentException("corrupt binary VM file at byte " + start);
+        }
+    }
+
+    private int varint() {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = input.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private String name() {
+        int ref = varint();
+        if (ref >= 0 && ref < names.size()) {
+            return names.get(ref);
+        }
+        if (ref != names.size()) {
+            // so o proximo indice da tabela define um nome; varints longos demais viram negativos
+            throw new IllegalArgumentException("invalid name reference " + ref + " at byte " + start);
+        }
+        byte[] bytes = new byte[varint()];
+        input.get(bytes);
+        String name = new String(bytes, StandardCharsets.US_ASCII);
+        names.add(name);
+        return name;
+    }
+
+}
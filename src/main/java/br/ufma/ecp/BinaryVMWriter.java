@@ -0,0 +1,131 @@
+package br.ufma.ecp;
+
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import br.ufma.ecp.Instruction.Op;
+
+// Codigo VM em formato binario compacto (.vmb), lido de volta pelo BinaryVMReader sem analisar texto.
+//
+// Formato: MAGIC e VERSION, depois uma instrucao apos a outra. Cada instrucao comeca com um byte
+// (Op << 4 | segmento ou comando) seguido dos operandos:
+//   push/pop            indice (varint)
+//   label/goto/if-goto  nome
+//   call/function       nome, nArgs ou nLocals (varint)
+// Varints sao LEB128 sem sinal. Um nome e uma referencia (varint) a tabela de nomes: uma referencia
+// igual ao tamanho da tabela define um nome novo, seguido do tamanho (varint) e dos bytes ASCII.
+// Assim a tabela e montada durante a escrita e o arquivo pode ser descarregado a cada subrotina.
+public class BinaryVMWriter extends VMWriter {
+
+    static final byte[] MAGIC = { 'J', 'V', 'M', 'B' };
+    static final int VERSION = 1;
+
+    private final Map<String, Integer> names = new HashMap<>();
+
+    public BinaryVMWriter() {
+        writeHeader();
+    }
+
+    public BinaryVMWriter(WritableByteChannel channel) {
+        super(channel);
+        writeHeader();
+    }
+
+    public BinaryVMWriter(OutputStream output) {
+        super(output);
+        writeHeader();
+    }
+
+    private void writeHeader() {
+        put(MAGIC);
+        putByte(VERSION);
+    }
+
+    @Override
+    public String vmOutput() {
+        throw new IllegalStateException("output is binary; use BinaryVMReader");
+    }
+
+    @Override
+    void writePush(Segment segment, int index) {
+        opcode(Op.PUSH, segment.ordinal());
+        varint(index);
+    }
+
+    @Override
+    void writePop(Segment segment, int index) {
+        opcode(Op.POP, segment.ordinal());
+        varint(index);
+    }
+
+    @Override
+    void writeArithmetic(Command command) {
+        opcode(Op.ARITHMETIC, command.ordinal());
+    }
+
+    @Override
+    void writeLabel(String label) {
+        opcode(Op.LABEL, 0);
+        name(label);
+    }
+
+    @Override
+    void writeGoto(String label) {
+        opcode(Op.GOTO, 0);
+        name(label);
+    }
+
+    @Override
+    void writeIf(String label) {
+        opcode(Op.IF_GOTO, 0);
+        name(label);
+    }
+
+    @Override
+    void writeCall(String name, int nArgs) {
+        opcode(Op.CALL, 0);
+        name(name);
+        varint(nArgs);
+    }
+
+    @Override
+    void writeFunction(String name, int nLocals) {
+        opcode(Op.FUNCTION, 0);
+        name(name);
+        varint(nLocals);
+    }
+
+    @Override
+    void writeReturn() {
+        opcode(Op.RETURN, 0);
+    }
+
+    private void opcode(Op op, int operand) {
+        putByte(op.ordinal() << 4 | operand);
+    }
+
+    private void name(String name) {
+        Integer ref = names.get(name);
+        if (ref != null) {
+            varint(ref);
+            return;
+        }
+        varint(names.size());
+        names.put(name, names.size());
+        byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+        varint(bytes.length);
+        put(bytes);
+    }
+
+    private void varint(int value) {
+        while ((value & ~0x7F) != 0) {
+            putByte(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        putByte(value);
+    }
+
+}
@@ -0,0 +1,123 @@
+package br.ufma.ecp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Estagio para o programa inteiro: grava o codigo de uma classe por funcao, com as chamadas que
+// cada uma faz. Depois que todas as classes foram gravadas, reachable() percorre o grafo a partir
+// de Main.main e Sys.init, e replay() repassa ao VMWriter de destino so as funcoes alcancaveis.
+public class CallGraph extends VMWriter {
+
+    static final List<String> ROOTS = List.of("Main.main", "Sys.init");
+
+    private final Map<String, Function> functions = new LinkedHashMap<>();
+    private Function current;
+
+    private record Function(List<Instruction> code, Set<String> calls) {
+    }
+
+    @Override
+    public String vmOutput() {
+        throw new IllegalStateException("output is recorded; use replay");
+    }
+
+    // tudo fica em memoria ate o replay
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    void writePush(Segment segment, int index) {
+        current.code().add(Instruction.push(segment, index));
+    }
+
+    @Override
+    void writePop(Segment segment, int index) {
+        current.code().add(Instruction.pop(segment, index));
+    }
+
+    @Override
+    void writeArithmetic(Command command) {
+        current.code().add(Instruction.arithmetic(command));
+    }
+
+    @Override
+    void writeLabel(String label) {
+        current.code().add(Instruction.label(label));
+    }
+
+    @Override
+    void writeGoto(String label) {
+        current.code().add(Instruction.jump(label));
+    }
+
+    @Override
+    void writeIf(String label) {
+        current.code().add(Instruction.ifGoto(label));
+    }
+
+    @Override
+    void writeCall(String name, int nArgs) {
+        current.code().add(Instruction.call(name, nArgs));
+        current.calls().add(name);
+    }
+
+    @Override
+    void writeFunction(String name, int nLocals) {
+        current = new Function(new ArrayList<>(), new HashSet<>());
+        current.code().add(Instruction.function(name, nLocals));
+        functions.put(name, current);
+    }
+
+    @Override
+    void writeReturn() {
+        current.code().add(Instruction.ret());
+    }
+
+    // funcoes alcancaveis a partir das raizes; sem nenhuma raiz nas fontes (uma biblioteca, nao um
+    // programa) nada e eliminado. Chamadas a funcoes fora das fontes (o SO embutido) sao ignoradas
+    static Set<String> reachable(List<CallGraph> classes) {
+        Map<String, Function> all = new LinkedHashMap<>();
+        for (CallGraph graph : classes) {
+            all.putAll(graph.functions);
+        }
+
+        var live = new HashSet<String>();
+        var pending = new ArrayDeque<String>();
+        for (String root : ROOTS) {
+            if (all.containsKey(root) && live.add(root)) {
+                pending.add(root);
+            }
+        }
+        if (pending.isEmpty()) {
+            return all.keySet();
+        }
+        while (!pending.isEmpty()) {
+            for (String callee : all.get(pending.poll()).calls()) {
+                if (all.containsKey(callee) && live.add(callee)) {
+                    pending.add(callee);
+                }
+            }
+        }
+        return live;
+    }
+
+    // as funcoes de live, na ordem do fonte; descarrega o destino ao fim de cada uma
+    void replay(VMWriter target, Set<String> live) {
+        for (var entry : functions.entrySet()) {
+            if (!live.contains(entry.getKey())) {
+                continue;
+            }
+            for (Instruction instruction : entry.getValue().code()) {
+                instruction.writeTo(target);
+            }
+            target.flush();
+        }
+    }
+
+}
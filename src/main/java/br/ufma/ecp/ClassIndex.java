@@ -0,0 +1,185 @@
+package br.ufma.ecp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import br.ufma.ecp.token.TokenBuffer;
+import br.ufma.ecp.token.TokenType;
+
+// Assinaturas das subrotinas de todas as classes do projeto, extraidas antes da compilacao.
+// Imutavel depois de construido: as threads que compilam cada arquivo leem sem sincronizar.
+// Classes fora do projeto (Math, Output, ...) nao aparecem e suas chamadas nao sao verificadas.
+public class ClassIndex {
+
+    public static record Subroutine(String name, TokenType kind, String returnType, int nParams) {
+    }
+
+    public static record ClassSummary(String name, Map<String, Subroutine> subroutines) {
+    }
+
+    static final int MAX_SUMMARIES = 4096;
+
+    // no daemon os resumos sobrevivem entre builds. A chave e o hash do conteudo (o mesmo do
+    // CompilationCache), entao um arquivo editado nunca recebe um resumo antigo; LRU limitado
+    private static final Map<String, ClassSummary> summaries = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ClassSummary> eldest) {
+                    return size() > MAX_SUMMARIES;
+                }
+            });
+
+    private final Map<String, ClassSummary> classes;
+
+    public ClassIndex(Collection<ClassSummary> summaries) {
+        var classes = new HashMap<String, ClassSummary>();
+        for (ClassSummary summary : summaries) {
+            if (summary != null) {
+                classes.put(summary.name(), summary);
+            }
+        }
+        this.classes = Collections.unmodifiableMap(classes);
+    }
+
+    public ClassSummary summary(String className) {
+        return classes.get(className);
+    }
+
+    public Subroutine subroutine(String className, String name) {
+        ClassSummary summary = classes.get(className);
+        return summary == null ? null : summary.subroutines().get(name);
+    }
+
+    // verifica uma chamada contra a assinatura; onObject quando ha um objeto receptor (x.f() ou f() em metodo)
+    // devolve a subrotina, ou null se a classe nao e do projeto
+    public Subroutine check(String className, String name, boolean onObject, int nArgs, int line) {
+        ClassSummary summary = classes.get(className);
+        if (summary == null) {
+            return null;
+        }
+        Subroutine subroutine = summary.subroutines().get(name);
+        if (subroutine == null) {
+            throw new Error(className + " has no subroutine " + name + " (line " + line + ")");
+        }
+        if (onObject != (subroutine.kind() == TokenType.METHOD)) {
+            throw new Error(className + "." + name + " is " + (onObject ? "not a method" : "a method")
+                    + " (line " + line + ")");
+        }
+        if (nArgs != subroutine.nParams()) {
+            throw new Error(className + "." + name + " expects " + subroutine.nParams() + " arguments, got "
+                    + nArgs + " (line " + line + ")");
+        }
+        return subroutine;
+    }
+
+    // muda sempre que alguma assinatura muda; entra na chave do CompilationCache
+    public String fingerprint() {
+        return new TreeMap<>(classes).values().toString();
+    }
+
+    public static ClassSummary summarize(Path source) throws IOException {
+        ByteBuffer input = Scanner.map(source);
+        return summarize(input, CompilationCache.hash(input, ""), null);
+    }
+
+    // hash: o do conteudo, calculado uma vez pelo JackCompiler e reaproveitado na chave do .vm.
+    // Com cache, um resumo ja gravado em disco e lido de la sem passar pelo Scanner
+    static ClassSummary summarize(ByteBuffer input, String hash, CompilationCache cache) throws IOException {
+        ClassSummary summary = summaries.get(hash);
+        if (summary != null) {
+            return summary;
+        }
+        String stored = cache == null ? null : cache.restoreSummary(hash);
+        if (stored != null) {
+            summary = decode(stored);
+        } else {
+            summary = summarize(new Scanner(input).tokenize());
+            if (cache != null) {
+                cache.storeSummary(hash, encode(summary));
+            }
+        }
+        if (summary != null) {
+            summaries.put(hash, summary);
+        }
+        return summary;
+    }
+
+    // uma linha com o nome da classe e uma por subrotina ("tipo nome retorno nParams"); vazio sem classe
+    static String encode(ClassSummary summary) {
+        if (summary == null) {
+            return "";
+        }
+        var text = new StringBuilder(summary.name()).append('\n');
+        for (Subroutine subroutine : summary.subroutines().values()) {
+            text.append(subroutine.kind()).append(' ').append(subroutine.name()).append(' ')
+                    .append(subroutine.returnType()).append(' ').append(subroutine.nParams()).append('\n');
+        }
+        return text.toString();
+    }
+
+    static ClassSummary decode(String text) {
+        String[] lines = text.split("\n");
+        if (lines[0].isEmpty()) {
+            return null;
+        }
+        var subroutines = new LinkedHashMap<String, Subroutine>();
+        for (int i = 1; i < lines.length; i++) {
+            String[] fields = lines[i].split(" ");
+            subroutines.put(fields[1], new Subroutine(fields[1], TokenType.valueOf(fields[0]), fields[2],
+                    Integer.parseInt(fields[3])));
+        }
+        return new ClassSummary(lines[0], Collections.unmodifiableMap(subroutines));
+    }
+
+    static int cachedSummaries() {
+        return summaries.size();
+    }
+
+    // so os cabecalhos: o corpo das subrotinas e pulado contando chaves; null se nao ha classe
+    public static ClassSummary summarize(TokenBuffer tokens) {
+        int i = 0;
+        int n = tokens.size();
+        while (i < n && tokens.type(i) != TokenType.CLASS) i++;
+        if (i + 1 >= n || tokens.type(i + 1) != TokenType.IDENT) {
+            return null;
+        }
+        String className = tokens.lexeme(i + 1);
+
+        var subroutines = new LinkedHashMap<String, Subroutine>();
+        int depth = 0;
+        for (i += 2; i < n; i++) {
+            TokenType type = tokens.type(i);
+            if (type == TokenType.LBRACE) {
+                depth++;
+            } else if (type == TokenType.RBRACE) {
+                depth--;
+            } else if (depth == 1 && isSubroutineKind(type) && i + 3 < n && tokens.type(i + 3) == TokenType.LPAREN) {
+                String returnType = tokens.lexeme(i + 1);
+                String name = tokens.lexeme(i + 2);
+                int nParams = 0;
+                int j = i + 4;
+                if (j < n && tokens.type(j) != TokenType.RPAREN) {
+                    nParams = 1;
+                }
+                for (; j < n && tokens.type(j) != TokenType.RPAREN; j++) {
+                    if (tokens.type(j) == TokenType.COMMA) nParams++;
+                }
+                subroutines.put(name, new Subroutine(name, type, returnType, nParams));
+                i = j;
+            }
+        }
+        return new ClassSummary(className, Collections.unmodifiableMap(subroutines));
+    }
+
+    private static boolean isSubroutineKind(TokenType type) {
+        return type == TokenType.CONSTRUCTOR || type == TokenType.FUNCTION || type == TokenType.METHOD;
+    }
+
+}
@@ -0,0 +1,475 @@
+package br.ufma.ecp;
+
+import java.util.EnumSet;
+
+import br.ufma.ecp.SymbolTable.Kind;
+import br.ufma.ecp.SymbolTable.Symbol;
+import br.ufma.ecp.VMWriter.Command;
+import br.ufma.ecp.VMWriter.Segment;
+import br.ufma.ecp.ast.Ast;
+import br.ufma.ecp.ast.AstParser;
+import br.ufma.ecp.ast.ConstantFolder;
+import br.ufma.ecp.token.TokenType;
+
+// Gera codigo VM percorrendo a Ast de uma classe. Diferente do Parser, que compila enquanto le,
+// a arvore inteira ja existe aqui, e as otimizacoes podem rodar sobre ela antes da geracao.
+public class CodeGenerator {
+
+    private final Ast ast;
+    private VMWriter vmWriter;
+    private SymbolTable symTable = new SymbolTable();
+    private EnumSet<Optimization> optimizations = EnumSet.noneOf(Optimization.class);
+
+    private String className;
+    private int ifLabelNum;
+    private int whileLabelNum;
+    private int stringLabelNum;
+    private StringPool stringPool = new StringPool();
+    private ClassIndex index; // null sem o indice do projeto
+
+    public CodeGenerator(Ast ast, VMWriter vmWriter) {
+        this.ast = ast;
+        this.vmWriter = vmWriter;
+    }
+
+    // Scanner.tokenize() + AstParser + geracao, para quem so quer o codigo VM
+    public static String compile(byte[] input, Optimization... optimizations) {
+        var parser = new AstParser(new Scanner(input).tokenize());
+        int root = parser.parseClass();
+        var generator = new CodeGenerator(parser.ast(), new VMWriter());
+        generator.enable(optimizations);
+        generator.generate(root);
+        return generator.vmOutput();
+    }
+
+    // deve ser chamado antes de generate
+    public void enable(Optimization... enabled) {
+        for (Optimization optimization : enabled) {
+            if (optimizations.add(optimization) && optimization == Optimization.PEEPHOLE) {
+                vmWriter = new PeepholeOptimizer(vmWriter);
+            }
+        }
+    }
+
+    // chamadas passam a ser verificadas contra as assinaturas do projeto
+    public void useIndex(ClassIndex index) {
+        this.index = index;
+    }
+
+    public String vmOutput() {
+        return vmWriter.vmOutput();
+    }
+
+    // node e um CLASS
+    public void generate(int node) {
+        if (optimizations.contains(Optimization.CONSTANT_FOLDING)) {
+            ConstantFolder.fold(ast, node);
+        }
+
+        className = ast.name(node);
+        for (int child = ast.first(node); child != Ast.NONE; child = ast.next(child)) {
+            if (ast.is(child, Ast.Kind.CLASS_VAR)) {
+                define(child, ast.op(child) == TokenType.STATIC ? Kind.STATIC : Kind.FIELD);
+            } else {
+                generateSubroutine(child);
+                vmWriter.flush();
+            }
+        }
+    }
+
+    void generateSubroutine(int node) {
+        ifLabelNum = 0;
+        whileLabelNum = 0;
+        stringLabelNum = 0;
+        symTable.startSubroutine();
+
+        var subroutineType = ast.op(node);
+        if (subroutineType == TokenType.METHOD) {
+            symTable.define("this", className, Kind.ARG);
+        }
+
+        int body = Ast.NONE;
+        for (int child = ast.first(node); child != Ast.NONE; child = ast.next(child)) {
+            if (ast.is(child, Ast.Kind.PARAMETER)) {
+                define(child, Kind.ARG);
+            } else if (ast.is(child, Ast.Kind.VAR)) {
+                define(child, Kind.VAR);
+            } else {
+                body = child;
+            }
+        }
+
+        vmWriter.writeFunction(className + "." + ast.name(node), symTable.varCount(Kind.VAR));
+
+        if (subroutineType == TokenType.CONSTRUCTOR) {
+            vmWriter.writePush(Segment.CONST, symTable.varCount(Kind.FIELD));
+            vmWriter.writeCall("Memory.alloc", 1);
+            vmWriter.writePop(Segment.POINTER, 0);
+        }
+
+        if (subroutineType == TokenType.METHOD) {
+            vmWriter.writePush(Segment.ARG, 0);
+            vmWriter.writePop(Segment.POINTER, 0);
+        }
+
+        generateStatements(body);
+    }
+
+    void generateStatements(int block) {
+        for (int statement = ast.first(block); statement != Ast.NONE; statement = ast.next(statement)) {
+            generateStatement(statement);
+            if (optimizations.contains(Optimization.DEAD_CODE) && terminates(statement)) {
+                return; // o resto do bloco e inalcancavel
+            }
+        }
+    }
+
+    void generateStatement(int node) {
+        switch (ast.kind(node)) {
+            case LET:
+                generateLet(node);
+                break;
+            case IF:
+                generateIf(node);
+                break;
+            case WHILE:
+                generateWhile(node);
+                break;
+            case DO:
+                generateCall(ast.first(node));
+                vmWriter.writePop(Segment.TEMP, 0);
+                break;
+            case RETURN:
+                if (ast.first(node) != Ast.NONE) {
+                    generateExpression(ast.first(node));
+                } else {
+                    vmWriter.writePush(Segment.CONST, 0);
+                }
+                vmWriter.writeReturn();
+                break;
+            default:
+                throw new Error("Expected a statement");
+        }
+    }
+
+    void generateLet(int node) {
+        int target = ast.first(node);
+        int value = ast.next(target);
+        var symbol = resolve(target);
+
+        if (ast.is(target, Ast.Kind.ARRAY)) {
+            generateExpression(ast.first(target));
+            vmWriter.writePush(kind2Segment(symbol.kind()), symbol.index());
+            vmWriter.writeArithmetic(Command.ADD);
+
+            generateExpression(value);
+            vmWriter.writePop(Segment.TEMP, 0);
+            vmWriter.writePop(Segment.POINTER, 1);
+            vmWriter.writePush(Segment.TEMP, 0);
+            vmWriter.writePop(Segment.THAT, 0);
+        } else {
+            generateExpression(value);
+            vmWriter.writePop(kind2Segment(symbol.kind()), symbol.index());
+        }
+    }
+
+    void generateIf(int node) {
+        int condition = ast.first(node);
+        int thenBlock = ast.next(condition);
+        int elseBlock = ast.next(thenBlock);
+
+        // condicao constante: so o ramo escolhido, sem rotulos
+        int value = constantCondition(condition);
+        if (value != ConstantFolder.NOT_FOLDED) {
+            if (value != 0) {
+                generateStatements(thenBlock);
+            } else if (elseBlock != Ast.NONE) {
+                generateStatements(elseBlock);
+            }
+            return;
+        }
+
+        var labelTrue = "IF_TRUE" + ifLabelNum;
+        var labelFalse = "IF_FALSE" + ifLabelNum;
+        var labelEnd = "IF_END" + ifLabelNum;
+        ifLabelNum++;
+
+        generateExpression(condition);
+        vmWriter.writeIf(labelTrue);
+        vmWriter.writeGoto(labelFalse);
+        vmWriter.writeLabel(labelTrue);
+        generateStatements(thenBlock);
+
+        // se o ramo then nao chega ao fim, nenhum salto vai para IF_END
+        boolean needsEnd = elseBlock != Ast.NONE
+                && !(optimizations.contains(Optimization.DEAD_CODE) && blockTerminates(thenBlock));
+        if (needsEnd) {
+            vmWriter.writeGoto(labelEnd);
+        }
+        vmWriter.writeLabel(labelFalse);
+        if (elseBlock != Ast.NONE) {
+            generateStatements(elseBlock);
+        }
+        if (needsEnd) {
+            vmWriter.writeLabel(labelEnd);
+        }
+    }
+
+    void generateWhile(int node) {
+        int condition = ast.first(node);
+        int body = ast.next(condition);
+        int value = constantCondition(condition);
+        if (value == 0) {
+            return;
+        }
+        // o teste e "not; if-goto": so -1 mantem o laco; outras constantes ficam no caminho normal
+        if (value != -1) {
+            value = ConstantFolder.NOT_FOLDED;
+        }
+
+        var labelTrue = "WHILE_EXP" + whileLabelNum;
+        var labelFalse = "WHILE_END" + whileLabelNum;
+        whileLabelNum++;
+
+        // um corpo que sempre retorna nao volta ao teste, e WHILE_EXP fica sem salto
+        boolean loops = !(optimizations.contains(Optimization.DEAD_CODE) && blockTerminates(body));
+        if (loops) {
+            vmWriter.writeLabel(labelTrue);
+        }
+        if (value == ConstantFolder.NOT_FOLDED) {
+            generateExpression(condition);
+            vmWriter.writeArithmetic(Command.NOT);
+            vmWriter.writeIf(labelFalse);
+        }
+        generateStatements(body);
+        if (loops) {
+            vmWriter.writeGoto(labelTrue);
+        }
+        if (value == ConstantFolder.NOT_FOLDED) {
+            vmWriter.writeLabel(labelFalse);
+        }
+    }
+
+    // com DEAD_CODE, o valor de uma condicao literal (ou ja dobrada por CONSTANT_FOLDING);
+    // NOT_FOLDED quando ela precisa ser avaliada
+    private int constantCondition(int node) {
+        if (!optimizations.contains(Optimization.DEAD_CODE)) {
+            return ConstantFolder.NOT_FOLDED;
+        }
+        if (ast.is(node, Ast.Kind.INT)) {
+            return ast.value(node);
+        }
+        if (ast.is(node, Ast.Kind.KEYWORD) && ast.op(node) != TokenType.THIS) {
+            return ast.op(node) == TokenType.TRUE ? -1 : 0;
+        }
+        return ConstantFolder.NOT_FOLDED;
+    }
+
+    // um comando termina quando a execucao nunca passa dele: return, if cujos ramos terminam ou
+    // while com condicao constante -1 (Jack nao tem break)
+    private boolean terminates(int statement) {
+        switch (ast.kind(statement)) {
+            case RETURN:
+                return true;
+            case WHILE:
+                return constantCondition(ast.first(statement)) == -1;
+            case IF: {
+                int condition = ast.first(statement);
+                int thenBlock = ast.next(condition);
+                int elseBlock = ast.next(thenBlock);
+                int value = constantCondition(condition);
+                if (value != ConstantFolder.NOT_FOLDED && value != 0) {
+                    return blockTerminates(thenBlock);
+                }
+                boolean elseTerminates = elseBlock != Ast.NONE && blockTerminates(elseBlock);
+                return value != ConstantFolder.NOT_FOLDED ? elseTerminates : elseTerminates && blockTerminates(thenBlock);
+            }
+            default:
+                return false;
+        }
+    }
+
+    private boolean blockTerminates(int block) {
+        for (int statement = ast.first(block); statement != Ast.NONE; statement = ast.next(statement)) {
+            if (terminates(statement)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void generateExpression(int node) {
+        switch (ast.kind(node)) {
+            case INT:
+                writeConstant(ast.value(node));
+                break;
+            case STRING:
+                if (optimizations.contains(Optimization.STRING_POOL)) {
+                    stringPool.write(vmWriter, ast.name(node), symTable.varCount(Kind.STATIC),
+                            "STRING" + stringLabelNum++);
+                } else {
+                    StringPool.writeNew(vmWriter, ast.name(node));
+                }
+                break;
+            case KEYWORD:
+                if (ast.op(node) == TokenType.THIS) {
+                    vmWriter.writePush(Segment.POINTER, 0);
+                } else {
+                    vmWriter.writePush(Segment.CONST, 0);
+                    if (ast.op(node) == TokenType.TRUE)
+                        vmWriter.writeArithmetic(Command.NOT);
+                }
+                break;
+            case VARIABLE: {
+                var symbol = resolve(node);
+                vmWriter.writePush(kind2Segment(symbol.kind()), symbol.index());
+                break;
+            }
+            case ARRAY: {
+                var symbol = resolve(node);
+                generateExpression(ast.first(node));
+                vmWriter.writePush(kind2Segment(symbol.kind()), symbol.index());
+                vmWriter.writeArithmetic(Command.ADD);
+                vmWriter.writePop(Segment.POINTER, 1);
+                vmWriter.writePush(Segment.THAT, 0);
+                break;
+            }
+            case CALL:
+                generateCall(node);
+                break;
+            case UNARY:
+                generateExpression(ast.first(node));
+                vmWriter.writeArithmetic(ast.op(node) == TokenType.MINUS ? Command.NEG : Command.NOT);
+                break;
+            case BINARY:
+                generateBinary(node);
+                break;
+            default:
+                throw new Error("term expected");
+        }
+    }
+
+    void generateBinary(int node) {
+        int left = ast.first(node);
+        int right = ast.next(left);
+        var op = ast.op(node);
+
+        if (optimizations.contains(Optimization.STRENGTH_REDUCTION)) {
+            // constantes nao tem efeito colateral: k * x pode avaliar x primeiro
+            if (op == TokenType.ASTERISK && isReducible(right)) {
+                generateExpression(left);
+                StrengthReduction.multiplyBy(vmWriter, ast.value(right));
+                return;
+            }
+            if (op == TokenType.ASTERISK && isReducible(left)) {
+                generateExpression(right);
+                StrengthReduction.multiplyBy(vmWriter, ast.value(left));
+                return;
+            }
+            if (op == TokenType.SLASH && ast.is(right, Ast.Kind.INT) && ast.value(right) == 1) {
+                generateExpression(left);
+                return;
+            }
+        }
+
+        generateExpression(left);
+        generateExpression(right);
+        switch (op) {
+            case ASTERISK: vmWriter.writeCall("Math.multiply", 2); break;
+            case SLASH: vmWriter.writeCall("Math.divide", 2); break;
+            case PLUS: vmWriter.writeArithmetic(Command.ADD); break;
+            case MINUS: vmWriter.writeArithmetic(Command.SUB); break;
+            case LT: vmWriter.writeArithmetic(Command.LT); break;
+            case GT: vmWriter.writeArithmetic(Command.GT); break;
+            case EQ: vmWriter.writeArithmetic(Command.EQ); break;
+            case AND: vmWriter.writeArithmetic(Command.AND); break;
+            case OR: vmWriter.writeArithmetic(Command.OR); break;
+            default: throw new Error("operator expected");
+        }
+    }
+
+    private boolean isReducible(int node) {
+        return ast.is(node, Ast.Kind.INT) && StrengthReduction.isReducibleFactor(ast.value(node));
+    }
+
+    // f(...) e metodo desta classe (ou funcao, segundo o indice); x.f(...) e metodo se x for variavel,
+    // senao funcao da classe x
+    void generateCall(int node) {
+        var receiver = ast.auxName(node);
+        var symbol = receiver == null ? null : symTable.resolve(receiver);
+        var name = ast.name(node);
+        var nArgs = ast.childCount(node);
+        String functionName;
+
+        if (receiver == null) {
+            var callee = index == null ? null : index.subroutine(className, name);
+            var isMethod = callee == null || callee.kind() == TokenType.METHOD;
+            if (index != null) {
+                index.check(className, name, isMethod, nArgs, ast.line(node));
+            }
+            if (isMethod) {
+                vmWriter.writePush(Segment.POINTER, 0);
+                nArgs++;
+            }
+            functionName = className + "." + name;
+        } else if (symbol != null) {
+            if (index != null) {
+                index.check(symbol.type(), name, true, nArgs, ast.line(node));
+            }
+            vmWriter.writePush(kind2Segment(symbol.kind()), symbol.index());
+            functionName = symbol.type() + "." + name;
+            nArgs++;
+        } else {
+            if (index != null) {
+                index.check(receiver, name, false, nArgs, ast.line(node));
+            }
+            functionName = receiver + "." + name;
+        }
+
+        for (int arg = ast.first(node); arg != Ast.NONE; arg = ast.next(arg)) {
+            generateExpression(arg);
+        }
+        vmWriter.writeCall(functionName, nArgs);
+    }
+
+    private void define(int node, Kind kind) {
+        if (symTable.isDefined(ast.name(node), kind)) {
+            throw new Error("variable " + ast.name(node) + " already defined at line " + ast.line(node));
+        }
+        symTable.define(ast.name(node), ast.auxName(node), kind);
+    }
+
+    private Symbol resolve(int node) {
+        var symbol = symTable.resolve(ast.name(node));
+        if (symbol == null) {
+            throw new Error("undefined variable " + ast.name(node) + " at line " + ast.line(node));
+        }
+        return symbol;
+    }
+
+    // push constant so aceita 0..32767; negativos saem com neg (ou not, para -32768)
+    private void writeConstant(int value) {
+        if (value >= 0) {
+            vmWriter.writePush(Segment.CONST, value);
+        } else if (value == Short.MIN_VALUE) {
+            vmWriter.writePush(Segment.CONST, Short.MAX_VALUE);
+            vmWriter.writeArithmetic(Command.NOT);
+        } else {
+            vmWriter.writePush(Segment.CONST, -value);
+            vmWriter.writeArithmetic(Command.NEG);
+        }
+    }
+
+    private Segment kind2Segment(Kind kind) {
+        if (kind == Kind.STATIC)
+            return Segment.STATIC;
+        if (kind == Kind.FIELD)
+            return Segment.THIS;
+        if (kind == Kind.VAR)
+            return Segment.LOCAL;
+        if (kind == Kind.ARG)
+            return Segment.ARG;
+        return null;
+    }
+
+}
@@ -0,0 +1,171 @@
+package br.ufma.ecp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Cache em disco do codigo VM: um arquivo <hash>.vm por entrada, onde o hash cobre a versao do
+// compilador, as opcoes e os bytes do fonte. Um arquivo igual nao passa de novo pelo Scanner/Parser.
+// A data de modificacao da entrada marca o ultimo uso; acima de maxBytes saem as mais antigas.
+// Ao lado ficam os resumos do ClassIndex (<hash>.sum), pelo hash so do conteudo: com eles o indice
+// de um build sai do disco, sem passar o fonte pelo Scanner.
+public class CompilationCache {
+
+    private static final String SUFFIX = ".vm";
+    private static final String SUMMARY_SUFFIX = ".sum";
+
+    private final Path dir;
+    private final long maxBytes;
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    public CompilationCache(Path dir, long maxBytes) throws IOException {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(dir);
+        for (Path entry : entries()) {
+            size.addAndGet(Files.size(entry));
+        }
+    }
+
+    public int hits() {
+        return hits.get();
+    }
+
+    public int misses() {
+        return misses.get();
+    }
+
+    public long size() {
+        return size.get();
+    }
+
+    // o buffer nao e alterado; options deve mudar sempre que a saida puder mudar
+    public String key(ByteBuffer source, String options) {
+        return hash(source, options);
+    }
+
+    // a partir do hash do conteudo ja calculado (hash(source, "")), sem reler o fonte
+    public String key(String sourceHash, String options) {
+        return hash(ByteBuffer.wrap(sourceHash.getBytes(StandardCharsets.US_ASCII)), options);
+    }
+
+    // SHA-256 da versao, das opcoes e dos bytes do fonte; com options vazio, a chave dos resumos do ClassIndex
+    static String hash(ByteBuffer source, String options) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update((JackCompiler.VERSION + '\0' + options + '\0').getBytes(StandardCharsets.UTF_8));
+        digest.update(source.duplicate());
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // copia a entrada para output; false se ela nao existe
+    public boolean restore(String key, Path output) throws IOException {
+        Path entry = dir.resolve(key + SUFFIX);
+        try {
+            Files.copy(entry, output, StandardCopyOption.REPLACE_EXISTING);
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            misses.incrementAndGet();
+            return false;
+        }
+        hits.incrementAndGet();
+        return true;
+    }
+
+    // o resumo gravado por storeSummary; null se nao existe (nao conta como hit nem miss)
+    public String restoreSummary(String key) throws IOException {
+        Path entry = dir.resolve(key + SUMMARY_SUFFIX);
+        try {
+            String summary = Files.readString(entry);
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            return summary;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    public void storeSummary(String key, String summary) throws IOException {
+        Path temp = Files.createTempFile(dir, key, ".tmp");
+        try {
+            Files.writeString(temp, summary);
+            add(dir.resolve(key + SUMMARY_SUFFIX), temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // grava por um arquivo temporario e renomeia, para que um restore concorrente nunca veja meia entrada
+    public void store(String key, Path output) throws IOException {
+        Path temp = Files.createTempFile(dir, key, ".tmp");
+        try {
+            Files.copy(output, temp, StandardCopyOption.REPLACE_EXISTING);
+            add(dir.resolve(key + SUFFIX), temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void add(Path entry, Path temp) throws IOException {
+        long previous = Files.exists(entry) ? Files.size(entry) : 0;
+        Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        size.addAndGet(Files.size(entry) - previous);
+        if (size.get() > maxBytes) {
+            evict();
+        }
+    }
+
+    private synchronized void evict() throws IOException {
+        if (size.get() <= maxBytes) {
+            return;
+        }
+        List<Path> entries = new ArrayList<>(entries());
+        Map<Path, FileTime> lastUse = new HashMap<>();
+        for (Path entry : entries) {
+            lastUse.put(entry, Files.getLastModifiedTime(entry));
+        }
+        entries.sort(Comparator.comparing(lastUse::get));
+
+        for (Path entry : entries) {
+            if (size.get() <= maxBytes) {
+                break;
+            }
+            try {
+                long length = Files.size(entry);
+                Files.delete(entry);
+                size.addAndGet(-length);
+            } catch (NoSuchFileException e) {
+                // ja removida por outro processo
+            }
+        }
+    }
+
+    private List<Path> entries() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(SUFFIX)
+                    || p.getFileName().toString().endsWith(SUMMARY_SUFFIX)).toList();
+        }
+    }
+
+}
@@ -0,0 +1,148 @@
+package br.ufma.ecp;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Processo de longa duracao que compila a pedido de clientes num socket Unix. O JIT ja aquecido
+// e as tabelas estaticas (palavras-chave, segmentos, comandos) sao reaproveitados entre builds.
+//
+// Protocolo: o cliente envia os mesmos argumentos do App em linhas UTF-8, um por linha, com
+// caminhos absolutos, e uma linha vazia. O daemon responde com a saida do App em blocos
+// (int tamanho, bytes) e termina com o registro (int END, int status); como o tamanho vem antes
+// dos bytes, nada que o programa imprima se confunde com o status. O argumento "-stop" encerra
+// o daemon.
+public class CompilerDaemon {
+
+    static final String STOP = "-stop";
+    static final int END = -1;
+    private static final int CHUNK_SIZE = 8192;
+
+    private final Path socket;
+    private final ExecutorService workers = Executors.newCachedThreadPool(runnable -> {
+        var thread = new Thread(runnable, "jack-daemon");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ServerSocketChannel server;
+
+    public CompilerDaemon(Path socket) {
+        this.socket = socket;
+    }
+
+    // bloqueia ate receber "-stop"; um socket de um daemon que morreu e substituido
+    public void serve() throws IOException {
+        if (Files.exists(socket)) {
+            if (DaemonClient.isRunning(socket)) {
+                throw new IOException("daemon already running on " + socket);
+            }
+            Files.delete(socket);
+        }
+
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socket));
+        try {
+            while (true) {
+                SocketChannel client = server.accept();
+                workers.execute(() -> handle(client));
+            }
+        } catch (AsynchronousCloseException e) {
+            // stop()
+        } finally {
+            workers.shutdown();
+            Files.deleteIfExists(socket);
+        }
+    }
+
+    public void stop() throws IOException {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private void handle(SocketChannel client) {
+        try (client) {
+            var in = new BufferedReader(new InputStreamReader(Channels.newInputStream(client), StandardCharsets.UTF_8));
+            var data = new DataOutputStream(Channels.newOutputStream(client));
+            var out = new PrintStream(new BufferedOutputStream(new ChunkedOutput(data), CHUNK_SIZE), false,
+                    StandardCharsets.UTF_8);
+
+            List<String> args = new ArrayList<>();
+            for (String line = in.readLine(); line != null && !line.isEmpty(); line = in.readLine()) {
+                args.add(line);
+            }
+
+            int status = 0;
+            if (args.isEmpty()) {
+                return; // DaemonClient.isRunning
+            }
+            if (args.equals(List.of(STOP))) {
+                end(data, status);
+                stop();
+                return;
+            }
+            try {
+                status = App.run(args, out);
+            } catch (Exception | Error e) {
+                out.println("erro: " + e.getMessage());
+                status = 1;
+            }
+            out.flush();
+            end(data, status);
+        } catch (IOException e) {
+            // cliente desconectou; nada a responder
+        }
+    }
+
+    private static void end(DataOutputStream data, int status) throws IOException {
+        data.writeInt(END);
+        data.writeInt(status);
+        data.flush();
+    }
+
+    // cada write vira um bloco (tamanho, bytes); o BufferedOutputStream na frente junta as linhas
+    private static class ChunkedOutput extends OutputStream {
+
+        private final DataOutputStream data;
+
+        ChunkedOutput(DataOutputStream data) {
+            this.data = data;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (length > 0) {
+                data.writeInt(length);
+                data.write(bytes, offset, length);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            data.flush();
+        }
+    }
+
+}
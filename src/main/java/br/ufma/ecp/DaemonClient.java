@@ -0,0 +1,80 @@
+package br.ufma.ecp;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+// Lado cliente do CompilerDaemon: repassa os argumentos e imprime a resposta.
+public class DaemonClient {
+
+    public static final int NOT_RUNNING = -1;
+
+    // devolve o status do build, ou NOT_RUNNING se nao ha daemon ouvindo em socket
+    public static int compile(Path socket, List<String> args, PrintStream out) throws IOException {
+        SocketChannel channel = connect(socket);
+        if (channel == null) {
+            return NOT_RUNNING;
+        }
+        try (channel) {
+            var request = new StringBuilder();
+            for (String arg : args) {
+                // o daemon roda em outro diretorio: caminhos vao absolutos
+                request.append(arg.startsWith("-") ? arg : Path.of(arg).toAbsolutePath().toString()).append('\n');
+            }
+            request.append('\n');
+            var writer = Channels.newOutputStream(channel);
+            writer.write(request.toString().getBytes(StandardCharsets.UTF_8));
+            writer.flush();
+
+            // blocos (tamanho, bytes) da saida ate o registro (END, status)
+            var in = new DataInputStream(Channels.newInputStream(channel));
+            try {
+                for (int length = in.readInt(); length != CompilerDaemon.END; length = in.readInt()) {
+                    if (length < 0) {
+                        throw new IOException("invalid daemon response");
+                    }
+                    var chunk = new byte[length];
+                    in.readFully(chunk);
+                    out.write(chunk);
+                }
+                out.flush();
+                return in.readInt();
+            } catch (EOFException e) {
+                throw new IOException("daemon closed the connection");
+            }
+        }
+    }
+
+    static boolean isRunning(Path socket) throws IOException {
+        SocketChannel channel = connect(socket);
+        if (channel == null) {
+            return false;
+        }
+        channel.close();
+        return true;
+    }
+
+    private static SocketChannel connect(Path socket) throws IOException {
+        if (!Files.exists(socket)) {
+            return null;
+        }
+        var channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            return null; // socket orfao de um daemon que morreu
+        }
+    }
+
+}
@@ -0,0 +1,397 @@
+package br.ufma.ecp;
+
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+
+// Backend que gera assembly Hack direto, sem passar por texto VM. Recebe as mesmas chamadas
+// writePush/writePop/writeCall/... que o VMWriter, entao o Parser e o CodeGenerator nao mudam.
+//
+// call, return e as comparacoes sao rotinas compartilhadas ($$CALL, $$RETURN, $$EQ, $$GT, $$LT),
+// escritas uma vez por programa em writeBootstrap(); cada uso custa so o salto e o endereco de volta.
+// Convencao das rotinas: D = endereco de volta; no $$CALL, R13 = nArgs e R14 = funcao chamada.
+public class HackWriter extends VMWriter {
+
+    private static final String BOOTSTRAP = """
+        @256
+        D=A
+        @SP
+        M=D
+        @R13
+        M=0
+        @Sys.init
+        D=A
+        @R14
+        M=D
+        @$$HALT
+        D=A
+        @$$CALL
+        0;JMP
+        ($$HALT)
+        @$$HALT
+        0;JMP
+        """;
+
+    // empilha o frame (volta, LCL, ARG, THIS, THAT), ARG = SP - nArgs - 5, LCL = SP
+    private static final String CALL = """
+        ($$CALL)
+        @SP
+        A=M
+        M=D
+        @LCL
+        D=M
+        @SP
+        AM=M+1
+        M=D
+        @ARG
+        D=M
+        @SP
+        AM=M+1
+        M=D
+        @THIS
+        D=M
+        @SP
+        AM=M+1
+        M=D
+        @THAT
+        D=M
+        @SP
+        AM=M+1
+        M=D
+        @SP
+        MD=M+1
+        @LCL
+        M=D
+        @R13
+        D=D-M
+        @5
+        D=D-A
+        @ARG
+        M=D
+        @R14
+        A=M
+        0;JMP
+        """;
+
+    // valor de retorno em *ARG, SP = ARG + 1 e restaura THAT, THIS, ARG e LCL do frame
+    private static final String RETURN = """
+        ($$RETURN)
+        @5
+        D=A
+        @LCL
+        A=M-D
+        D=M
+        @R14
+        M=D
+        @SP
+        AM=M-1
+        D=M
+        @ARG
+        A=M
+        M=D
+        @ARG
+        D=M+1
+        @SP
+        M=D
+        @LCL
+        AM=M-1
+        D=M
+        @THAT
+        M=D
+        @LCL
+        AM=M-1
+        D=M
+        @THIS
+        M=D
+        @LCL
+        AM=M-1
+        D=M
+        @ARG
+        M=D
+        @LCL
+        A=M-1
+        D=M
+        @LCL
+        M=D
+        @R14
+        A=M
+        0;JMP
+        """;
+
+    private String className; // dono dos statics (Classe.i), tirado do nome da funcao
+    private String functionName; // escopo dos rotulos
+    private int returnNum; // enderecos de volta da funcao atual
+
+    public HackWriter() {
+    }
+
+    public HackWriter(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    public HackWriter(OutputStream output) {
+        super(output);
+    }
+
+    // inicio do programa: SP = 256, chama Sys.init e entao as rotinas compartilhadas
+    void writeBootstrap() {
+        put(BOOTSTRAP);
+        put(CALL);
+        put(RETURN);
+        for (Command command : new Command[] { Command.EQ, Command.GT, Command.LT }) {
+            writeCompare(command);
+        }
+    }
+
+    // x op y, com y no topo: deixa -1 (verdadeiro) ou 0 no lugar de x
+    private void writeCompare(Command command) {
+        String name = "$$" + command.name();
+        line("(" + name + ")");
+        line("@R13");
+        line("M=D");
+        popD();
+        line("A=A-1");
+        line("D=M-D");
+        line("M=-1");
+        line("@" + name + "$true");
+        line("D;J" + command.name());
+        line("@SP");
+        line("A=M-1");
+        line("M=0");
+        line("(" + name + "$true)");
+        line("@R13");
+        line("A=M");
+        line("0;JMP");
+    }
+
+    @Override
+    void writePush(Segment segment, int index) {
+        switch (segment) {
+            case CONST:
+                if (index <= 1) {
+                    // 0 e 1 direto na pilha
+                    line("@SP");
+                    line("AM=M+1");
+                    line("A=A-1");
+                    line(index == 0 ? "M=0" : "M=1");
+                    return;
+                }
+                line("@" + index);
+                line("D=A");
+                break;
+            case LOCAL:
+            case ARG:
+            case THIS:
+            case THAT:
+                line("@" + base(segment));
+                if (index == 0) {
+                    line("A=M");
+                } else if (index == 1) {
+                    line("A=M+1");
+                } else {
+                    line("D=M");
+                    line("@" + index);
+                    line("A=D+A");
+                }
+                line("D=M");
+                break;
+            default:
+                line("@" + address(segment, index));
+                line("D=M");
+        }
+        pushD();
+    }
+
+    @Override
+    void writePop(Segment segment, int index) {
+        switch (segment) {
+            case LOCAL:
+            case ARG:
+            case THIS:
+            case THAT:
+                if (index <= 6) {
+                    // desloca o ponteiro com A=A+1, sem precisar de R13
+                    popD();
+                    line("@" + base(segment));
+                    line("A=M");
+                    for (int i = 0; i < index; i++) {
+                        line("A=A+1");
+                    }
+                    line("M=D");
+                    return;
+                }
+                line("@" + base(segment));
+                line("D=M");
+                line("@" + index);
+                line("D=D+A");
+                line("@R13");
+                line("M=D");
+                popD();
+                line("@R13");
+                line("A=M");
+                line("M=D");
+                return;
+            case CONST:
+                throw new IllegalArgumentException("pop constant");
+            default:
+                popD();
+                line("@" + address(segment, index));
+                line("M=D");
+        }
+    }
+
+    @Override
+    void writeArithmetic(Command command) {
+        switch (command) {
+            case NEG:
+            case NOT:
+                line("@SP");
+                line("A=M-1");
+                line(command == Command.NEG ? "M=-M" : "M=!M");
+                break;
+            case EQ:
+            case GT:
+            case LT:
+                String label = returnLabel();
+                line("@" + label);
+                line("D=A");
+                line("@$$" + command.name());
+                line("0;JMP");
+                line("(" + label + ")");
+                break;
+            default:
+                popD();
+                line("A=A-1");
+                switch (command) {
+                    case ADD:
+                        line("M=D+M");
+                        break;
+                    case SUB:
+                        line("M=M-D");
+                        break;
+                    case AND:
+                        line("M=D&M");
+                        break;
+                    default:
+                        line("M=D|M");
+                }
+        }
+    }
+
+    @Override
+    void writeLabel(String label) {
+        line("(" + functionName + "$" + label + ")");
+    }
+
+    @Override
+    void writeGoto(String label) {
+        line("@" + functionName + "$" + label);
+        line("0;JMP");
+    }
+
+    @Override
+    void writeIf(String label) {
+        popD();
+        line("@" + functionName + "$" + label);
+        line("D;JNE");
+    }
+
+    @Override
+    void writeCall(String name, int nArgs) {
+        if (nArgs <= 1) {
+            line("@R13");
+            line(nArgs == 0 ? "M=0" : "M=1");
+        } else {
+            line("@" + nArgs);
+            line("D=A");
+            line("@R13");
+            line("M=D");
+        }
+        line("@" + name);
+        line("D=A");
+        line("@R14");
+        line("M=D");
+        String label = returnLabel();
+        line("@" + label);
+        line("D=A");
+        line("@$$CALL");
+        line("0;JMP");
+        line("(" + label + ")");
+    }
+
+    @Override
+    void writeFunction(String name, int nLocals) {
+        functionName = name;
+        className = name.substring(0, name.indexOf('.'));
+        returnNum = 0;
+
+        line("(" + name + ")");
+        if (nLocals == 0) {
+            return;
+        }
+        // zera os locais e avanca o SP de uma vez
+        line("@SP");
+        line("A=M");
+        for (int i = 0; i < nLocals; i++) {
+            line("M=0");
+            line("A=A+1");
+        }
+        line("D=A");
+        line("@SP");
+        line("M=D");
+    }
+
+    @Override
+    void writeReturn() {
+        line("@$$RETURN");
+        line("0;JMP");
+    }
+
+    private String returnLabel() {
+        return functionName + "$ret." + returnNum++;
+    }
+
+    private static String base(Segment segment) {
+        switch (segment) {
+            case LOCAL:
+                return "LCL";
+            case ARG:
+                return "ARG";
+            case THIS:
+                return "THIS";
+            default:
+                return "THAT";
+        }
+    }
+
+    // segmentos de endereco fixo: temp em R5..R12, pointer em THIS/THAT, static como variavel
+    private String address(Segment segment, int index) {
+        switch (segment) {
+            case TEMP:
+                return "R" + (5 + index);
+            case POINTER:
+                return index == 0 ? "THIS" : "THAT";
+            default:
+                return className + "." + index;
+        }
+    }
+
+    private void pushD() {
+        line("@SP");
+        line("AM=M+1");
+        line("A=A-1");
+        line("M=D");
+    }
+
+    // desempilha em D; A fica apontando para a posicao liberada
+    private void popD() {
+        line("@SP");
+        line("AM=M-1");
+        line("D=M");
+    }
+
+    private void line(String text) {
+        put(text);
+        newLine();
+    }
+
+}
@@ -0,0 +1,96 @@
+package br.ufma.ecp;
+
+import br.ufma.ecp.VMWriter.Command;
+import br.ufma.ecp.VMWriter.Segment;
+
+// uma instrucao VM guardada em vez de escrita, para os estagios que reescrevem o codigo antes de emiti-lo
+record Instruction(Op op, Segment segment, Command command, String name, int index) {
+
+    enum Op {
+        PUSH, POP, ARITHMETIC, LABEL, GOTO, IF_GOTO, CALL, FUNCTION, RETURN
+    }
+
+    static Instruction push(Segment segment, int index) {
+        return new Instruction(Op.PUSH, segment, null, null, index);
+    }
+
+    static Instruction pop(Segment segment, int index) {
+        return new Instruction(Op.POP, segment, null, null, index);
+    }
+
+    static Instruction arithmetic(Command command) {
+        return new Instruction(Op.ARITHMETIC, null, command, null, 0);
+    }
+
+    static Instruction label(String label) {
+        return new Instruction(Op.LABEL, null, null, label, 0);
+    }
+
+    static Instruction jump(String label) {
+        return new Instruction(Op.GOTO, null, null, label, 0);
+    }
+
+    static Instruction ifGoto(String label) {
+        return new Instruction(Op.IF_GOTO, null, null, label, 0);
+    }
+
+    static Instruction call(String name, int nArgs) {
+        return new Instruction(Op.CALL, null, null, name, nArgs);
+    }
+
+    static Instruction function(String name, int nLocals) {
+        return new Instruction(Op.FUNCTION, null, null, name, nLocals);
+    }
+
+    static Instruction ret() {
+        return new Instruction(Op.RETURN, null, null, null, 0);
+    }
+
+    boolean is(Op op) {
+        return this.op == op;
+    }
+
+    boolean is(Command command) {
+        return op == Op.ARITHMETIC && this.command == command;
+    }
+
+    boolean isPush(Segment segment, int index) {
+        return op == Op.PUSH && this.segment == segment && this.index == index;
+    }
+
+    boolean isJump() {
+        return op == Op.GOTO || op == Op.IF_GOTO;
+    }
+
+    void writeTo(VMWriter vmWriter) {
+        switch (op) {
+            case PUSH:
+                vmWriter.writePush(segment, index);
+                break;
+            case POP:
+                vmWriter.writePop(segment, index);
+                break;
+            case ARITHMETIC:
+                vmWriter.writeArithmetic(command);
+                break;
+            case LABEL:
+                vmWriter.writeLabel(name);
+                break;
+            case GOTO:
+                vmWriter.writeGoto(name);
+                break;
+            case IF_GOTO:
+                vmWriter.writeIf(name);
+                break;
+            case CALL:
+                vmWriter.writeCall(name, index);
+                break;
+            case FUNCTION:
+                vmWriter.writeFunction(name, index);
+                break;
+            case RETURN:
+                vmWriter.writeReturn();
+                break;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package br.ufma.ecp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import br.ufma.ecp.ast.AstParser;
+
+// Compila diretorios inteiros: um Parser por arquivo .jack, em paralelo
+public class JackCompiler {
+
+    // entra na chave do CompilationCache: mude sempre que o codigo gerado mudar
+    public static final String VERSION = "1.0";
+
+    // errors vazia quando o arquivo compilou; senao o .vm nao e gerado
+    public static record Result(Path source, Path output, long nanos, List<String> errors) {
+    }
+
+    private final ForkJoinPool pool;
+    private final Set<Optimization> optimizations;
+    private final boolean ast; // AstParser + CodeGenerator em vez do Parser de uma passada
+    private CompilationCache cache; // null: sempre compila
+    private boolean recovery; // erros de compilacao vao para o Result em vez de abortar o build
+    private Path program; // com HackWriter: o unico .asm do build; null gera um .vm por classe
+    private boolean binary; // .vmb do BinaryVMWriter em vez de .vm em texto
+    private boolean wholeProgram; // so as subrotinas alcancaveis a partir de Main.main e Sys.init
+
+    public JackCompiler() {
+        this(Runtime.getRuntime().availableProcessors(), EnumSet.noneOf(Optimization.class));
+    }
+
+    public JackCompiler(int parallelism) {
+        this(parallelism, EnumSet.noneOf(Optimization.class));
+    }
+
+    public JackCompiler(int parallelism, Set<Optimization> optimizations) {
+        this(parallelism, optimizations, false);
+    }
+
+    public JackCompiler(int parallelism, Set<Optimization> optimizations, boolean ast) {
+        pool = new ForkJoinPool(parallelism);
+        this.optimizations = EnumSet.noneOf(Optimization.class);
+        this.optimizations.addAll(optimizations);
+        this.ast = ast;
+    }
+
+    // aceita arquivos .jack ou diretorios; o resultado segue a ordem dos caminhos ordenados
+    public List<Result> compile(List<Path> paths) throws IOException {
+        var sources = new ArrayList<Path>();
+        for (Path path : paths) {
+            sources.addAll(sources(path));
+        }
+
+        // primeiro so os cabecalhos de todos os arquivos, depois a compilacao consultando o indice.
+        // Cada fonte e mapeado e tem o hash do conteudo calculado uma vez: o hash e a chave do resumo
+        // e a base da chave do .vm no CompilationCache
+        var inputs = new ByteBuffer[sources.size()];
+        var hashes = new String[sources.size()];
+        var summaries = new ClassIndex.ClassSummary[sources.size()];
+        var results = new Result[sources.size()];
+        try {
+            pool.invoke(new FileTask(i -> {
+                inputs[i] = Scanner.map(sources.get(i));
+                hashes[i] = CompilationCache.hash(inputs[i], "");
+                summaries[i] = ClassIndex.summarize(inputs[i], hashes[i], cache);
+            }, 0, sources.size()));
+            var index = new ClassIndex(Arrays.asList(summaries));
+            if (wholeProgram) {
+                // todas as classes gravadas antes de escrever qualquer uma: so entao o grafo esta completo
+                var graphs = new CallGraph[sources.size()];
+                pool.invoke(new FileTask(i -> {
+                    graphs[i] = new CallGraph();
+                    var output = program != null ? program : output(sources.get(i));
+                    results[i] = translateFile(sources.get(i), inputs[i], index, graphs[i], output);
+                }, 0, sources.size()));
+                var live = CallGraph.reachable(Arrays.asList(graphs));
+                if (program != null) {
+                    var fragments = new HackWriter[sources.size()];
+                    pool.invoke(new FileTask(i -> graphs[i].replay(fragments[i] = new HackWriter(), live), 0, sources.size()));
+                    link(results, fragments);
+                } else {
+                    pool.invoke(new FileTask(i -> writeFile(results[i], graphs[i], live), 0, sources.size()));
+                }
+            } else if (program != null) {
+                var fragments = new HackWriter[sources.size()];
+                pool.invoke(new FileTask(i -> {
+                    fragments[i] = new HackWriter();
+                    results[i] = translateFile(sources.get(i), inputs[i], index, fragments[i], program);
+                }, 0, sources.size()));
+                link(results, fragments);
+            } else {
+                pool.invoke(new FileTask(i -> results[i] = compileFile(sources.get(i), inputs[i], hashes[i], index),
+                        0, sources.size()));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (Error e) {
+            // o ForkJoinPool relanca uma copia do erro vindo de outra thread; devolve o original
+            Throwable cause = e;
+            while (cause.getCause() instanceof Error) {
+                cause = cause.getCause();
+            }
+            throw (Error) cause;
+        }
+        return List.of(results);
+    }
+
+    // deve ser chamado antes de compile
+    public void useCache(CompilationCache cache) {
+        this.cache = cache;
+    }
+
+    // gera assembly Hack (HackWriter) num unico programa em vez de um .vm por classe; o programa
+    // comeca pelo bootstrap que chama Sys.init, entao o SO em Jack deve estar entre as fontes.
+    // Sem CompilationCache: cada classe e traduzida em memoria. Deve ser chamado antes de compile
+    public void assembleTo(Path program) {
+        this.program = program;
+    }
+
+    // cada classe vira um .vmb (BinaryVMWriter); deve ser chamado antes de compile
+    public void emitBinary(boolean enabled) {
+        binary = enabled;
+    }
+
+    // programa inteiro: omite as subrotinas que nenhuma cadeia de chamadas a partir de Main.main ou
+    // Sys.init alcanca. A saida de uma classe depende das outras, entao fica sem CompilationCache.
+    // Deve ser chamado antes de compile
+    public void eliminateUnused(boolean enabled) {
+        wholeProgram = enabled;
+    }
+
+    // cada arquivo reporta todos os seus erros e os demais continuam compilando;
+    // deve ser chamado antes de compile
+    public void enableRecovery(boolean enabled) {
+        recovery = enabled;
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    static List<Path> sources(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return List.of(path);
+        }
+        try (Stream<Path> files = Files.list(path)) {
+            return files.filter(p -> p.toString().endsWith(".jack"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    Result compileFile(Path source, ByteBuffer input, String hash, ClassIndex index) throws IOException {
+        long start = System.nanoTime();
+
+        var output = output(source);
+        String key = null;
+        if (cache != null) {
+            key = cache.key(hash, (ast ? "ast " : "") + (binary ? "bin " : "") + optimizations + index.fingerprint());
+            if (cache.restore(key, output)) {
+                return new Result(source, output, System.nanoTime() - start, List.of());
+            }
+        }
+
+        List<String> errors;
+        try (var channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            var vmWriter = writer(channel);
+            errors = translate(input, vmWriter, index);
+            vmWriter.flush();
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(output);
+            throw e.getCause();
+        } catch (RuntimeException | Error e) {
+            Files.deleteIfExists(output); // nao deixa um .vm pela metade
+            throw e;
+        }
+
+        if (!errors.isEmpty()) {
+            Files.delete(output); // codigo de um arquivo com erro nao serve para nada
+        } else if (cache != null) {
+            cache.store(key, output);
+        }
+        return new Result(source, output, System.nanoTime() - start, errors);
+    }
+
+    private Path output(Path source) {
+        var fileName = source.getFileName().toString();
+        return source.resolveSibling(fileName.substring(0, fileName.length() - ".jack".length()) + (binary ? ".vmb" : ".vm"));
+    }
+
+    private VMWriter writer(FileChannel channel) {
+        return binary ? new BinaryVMWriter(channel) : new VMWriter(channel);
+    }
+
+    // a traducao fica em memoria (HackWriter ou CallGraph) ate o link ou o writeFile
+    private Result translateFile(Path source, ByteBuffer input, ClassIndex index, VMWriter vmWriter, Path output) {
+        long start = System.nanoTime();
+        var errors = translate(input, vmWriter, index);
+        return new Result(source, output, System.nanoTime() - start, errors);
+    }
+
+    // as funcoes vivas de uma classe ja gravada; como em compileFile, arquivo com erro nao tem saida
+    private void writeFile(Result result, CallGraph graph, Set<String> live) throws IOException {
+        if (!result.errors().isEmpty()) {
+            Files.deleteIfExists(result.output());
+            return;
+        }
+        try (var channel = FileChannel.open(result.output(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            var vmWriter = writer(channel);
+            graph.replay(vmWriter, live);
+            vmWriter.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // bootstrap e rotinas compartilhadas, depois as classes na ordem das fontes; com erro nao ha programa
+    private void link(Result[] results, HackWriter[] fragments) throws IOException {
+        for (Result result : results) {
+            if (!result.errors().isEmpty()) {
+                Files.deleteIfExists(program);
+                return;
+            }
+        }
+        try (var channel = FileChannel.open(program, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            var bootstrap = new HackWriter(channel);
+            bootstrap.writeBootstrap();
+            bootstrap.flush();
+            for (HackWriter fragment : fragments) {
+                ByteBuffer code = fragment.contents();
+                while (code.hasRemaining()) {
+                    channel.write(code);
+                }
+            }
+        }
+    }
+
+    // o codigo vai para vmWriter; devolve os erros (so com recuperacao, senao o primeiro e lancado)
+    private List<String> translate(ByteBuffer input, VMWriter vmWriter, ClassIndex index) {
+        if (ast) {
+            // o AstParser para no primeiro erro; com recuperacao so este arquivo falha
+            try {
+                var parser = new AstParser(new Scanner(input).tokenize());
+                var generator = new CodeGenerator(parser.ast(), vmWriter);
+                int root = parser.parseClass();
+                generator.enable(optimizations.toArray(new Optimization[0]));
+                generator.useIndex(index);
+                generator.generate(root);
+                return List.of();
+            } catch (Error e) {
+                if (!recovery) {
+                    throw e;
+                }
+                return List.of(e.getMessage());
+            }
+        }
+        var parser = new Parser(input, vmWriter);
+        parser.enable(optimizations.toArray(new Optimization[0]));
+        parser.useIndex(index);
+        parser.enableRecovery(recovery);
+        parser.parser();
+        return parser.errors();
+    }
+
+    private interface FileAction {
+        void run(int index) throws IOException;
+    }
+
+    // divide a lista ao meio ate sobrar um arquivo; as metades ociosas sao roubadas por outras threads
+    private static class FileTask extends RecursiveAction {
+
+        private final FileAction action;
+        private final int from;
+        private final int to;
+
+        FileTask(FileAction action, int from, int to) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to) {
+                    try {
+                        action.run(from);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new FileTask(action, from, mid), new FileTask(action, mid, to));
+        }
+    }
+}
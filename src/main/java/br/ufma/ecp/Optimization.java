@@ -0,0 +1,10 @@
+package br.ufma.ecp;
+
+// otimizacoes opcionais do compilador; todas desligadas por padrao
+public enum Optimization {
+    PEEPHOLE,
+    CONSTANT_FOLDING,
+    STRENGTH_REDUCTION,
+    STRING_POOL, // literais viram objetos compartilhados: codigo que altera ou descarta um literal muda de sentido
+    DEAD_CODE // so no CodeGenerator (-ast): o Parser emite enquanto le; la o PEEPHOLE remove o inalcancavel
+}
@@ -1,9 +1,20 @@
 package br.ufma.ecp;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
 import br.ufma.ecp.SymbolTable.Kind;
 import br.ufma.ecp.SymbolTable.Symbol;
 import br.ufma.ecp.VMWriter.Command;
 import br.ufma.ecp.VMWriter.Segment;
+import br.ufma.ecp.ast.ConstantFolder;
 import br.ufma.ecp.token.Token;
+import br.ufma.ecp.token.TokenBuffer;
 import br.ufma.ecp.token.TokenType;
 
 
@@ -13,32 +24,99 @@ import br.ufma.ecp.token.TokenType;
 
 public class Parser {
 
-    private static class ParseError extends RuntimeException {}
+    // desfaz a pilha ate o ponto de sincronizacao; a mensagem ja foi anotada em errors
+    private static class ParseError extends RuntimeException {
+        ParseError() {
+            super(null, null, false, false);
+        }
+    }
     private Scanner scan;
-    private Token currentToken;
-    private Token peekToken;
-    private StringBuilder xmlOutput = new StringBuilder();
-    private VMWriter vmWriter = new VMWriter();
+    private TokenBuffer tokens;
+    private int tokenIndex;
+    // o token atual e o seguinte, sem objeto Token: simbolos e palavras-chave usam o lexema fixo de
+    // TokenType, e so identificadores, strings e numeros materializam uma String
+    private TokenType currentType;
+    private String currentLexeme;
+    private int currentLine;
+    private TokenType peekType;
+    private String peekLexeme;
+    private int peekLine;
+    private StringBuilder xmlOutput = new StringBuilder(); // null quando a saida XML esta desligada
+    private VMWriter vmWriter;
     private SymbolTable symTable = new SymbolTable();
+    private EnumSet<Optimization> optimizations = EnumSet.noneOf(Optimization.class);
+    private int[] pendingConstants = new int[8]; // constantes ainda nao emitidas (CONSTANT_FOLDING, STRENGTH_REDUCTION)
+    private int pendingCount;
 
     
 
     private String className; // nome da classe
     private int ifLabelNum; // numero de if
     private int whileLabelNum; // numero de while
+    private int stringLabelNum; // numero de literais com STRING_POOL
+    private StringPool stringPool = new StringPool();
+    private ClassIndex index; // assinaturas das outras classes do projeto; null sem o indice
+    private List<String> errors; // null: o primeiro erro interrompe a compilacao
 
     public Parser (byte[] input) {
+        this(new Scanner(input), new VMWriter());
+    }
+
+    // arquivo mapeado em memoria, sem copia para o heap
+    public Parser (Path input) throws IOException {
+        this(new Scanner(input), new VMWriter());
+    }
+
+    // o codigo VM vai para vmWriter, descarregado ao fim de cada subrotina; sem saida XML
+    public Parser (Path input, VMWriter vmWriter) throws IOException {
+        this(new Scanner(input), vmWriter);
+        xmlOutput = null;
+    }
+
+    public Parser (ByteBuffer input, VMWriter vmWriter) {
+        this(new Scanner(input), vmWriter);
+        xmlOutput = null;
+    }
+
+    public Parser (ByteBuffer input) {
+        this(new Scanner(input), new VMWriter());
+    }
+
+    private Parser (Scanner scan, VMWriter vmWriter) {
+
+        this.scan = scan;
+        this.vmWriter = vmWriter;
+
+        nextToken();
+        ifLabelNum = 0;
+        whileLabelNum = 0;
+    }
+
+    // le os tokens ja reconhecidos por Scanner.tokenize(); os lexemas sao materializados sob demanda
+    public Parser (TokenBuffer tokens) {
+
+        this.tokens = tokens;
+        this.vmWriter = new VMWriter();
 
-        scan = new Scanner(input);
-            
         nextToken();
         ifLabelNum = 0;
-        whileLabelNum = 0;  
+        whileLabelNum = 0;
     }
 
     public void nextToken () {
-        currentToken = peekToken;
-        peekToken = scan.nextToken();        
+        currentType = peekType;
+        currentLexeme = peekLexeme;
+        currentLine = peekLine;
+        if (tokens != null) {
+            int i = Math.min(tokenIndex++, tokens.size() - 1); // depois do ultimo, sempre o EOF
+            peekType = tokens.type(i);
+            peekLexeme = tokens.lexeme(i);
+            peekLine = tokens.line(i);
+        } else {
+            peekType = scan.next();
+            peekLexeme = scan.lexeme(peekType);
+            peekLine = scan.line();
+        }
     }
     
 
@@ -50,20 +128,32 @@ public class Parser {
     public void parseClass () {
 
         printNonTerminal("class");
-        expectPeek(TokenType.CLASS);
-        expectPeek(TokenType.IDENT);
-        className = currentToken.lexeme;        
-        expectPeek(TokenType.LBRACE);
+        try {
+            expectPeek(TokenType.CLASS);
+            expectPeek(TokenType.IDENT);
+            className = currentLexeme;
+            expectPeek(TokenType.LBRACE);
 
-        while ( peekTokenIs(TokenType.STATIC) || peekTokenIs(TokenType.FIELD) ) {
-            parseClassVarDec();
-        }
+            while ( peekTokenIs(TokenType.STATIC) || peekTokenIs(TokenType.FIELD) ) {
+                try {
+                    parseClassVarDec();
+                } catch (ParseError e) {
+                    synchronize();
+                }
+            }
 
-        while (peekTokenIs(TokenType.FUNCTION) || peekTokenIs(TokenType.CONSTRUCTOR) || peekTokenIs(TokenType.METHOD)) {
-            parseSubroutineDec();
-        }      
-        
-        expectPeek(TokenType.RBRACE);
+            while (peekTokenIs(TokenType.FUNCTION) || peekTokenIs(TokenType.CONSTRUCTOR) || peekTokenIs(TokenType.METHOD)) {
+                try {
+                    parseSubroutineDec();
+                } catch (ParseError e) {
+                    synchronize();
+                }
+            }
+
+            expectPeek(TokenType.RBRACE);
+        } catch (ParseError e) {
+            // cabecalho da classe ou '}' final: ja anotado, nao ha onde sincronizar
+        }
         printNonTerminal("class");
 
         
@@ -79,19 +169,19 @@ public class Parser {
 
         // 'int' | 'char' | 'boolean' | className
         expectPeek(TokenType.INT, TokenType.CHAR, TokenType.BOOLEAN, TokenType.IDENT);
-        String type = currentToken.lexeme;
+        String type = currentLexeme;
 
         expectPeek(TokenType.IDENT);
-        String name = currentToken.lexeme;
-        symTable.define(name, type, kind);
+        String name = currentLexeme;
+        define(name, type, kind);
 
 
         while (peekTokenIs(TokenType.COMMA)) {
             expectPeek(TokenType.COMMA);
             expectPeek(TokenType.IDENT); 
             
-            name = currentToken.lexeme;
-            symTable.define(name, type, kind);
+            name = currentLexeme;
+            define(name, type, kind);
         }
         expectPeek(TokenType.SEMICOLON);
         printNonTerminal("/varDec");
@@ -109,19 +199,19 @@ public class Parser {
         
         // 'int' | 'char' | 'boolean' | className
         expectPeek(TokenType.INT, TokenType.CHAR, TokenType.BOOLEAN, TokenType.IDENT);
-        String type = currentToken.lexeme;
+        String type = currentLexeme;
 
         expectPeek(TokenType.IDENT);
-        String name = currentToken.lexeme;
+        String name = currentLexeme;
 
-        symTable.define(name, type, kind);
+        define(name, type, kind);
 
         while (peekTokenIs(TokenType.COMMA)) {
             expectPeek(TokenType.COMMA);
             expectPeek(TokenType.IDENT);
 
-            name = currentToken.lexeme;
-            symTable.define(name, type, kind);
+            name = currentLexeme;
+            define(name, type, kind);
         }
 
         expectPeek(TokenType.SEMICOLON);
@@ -152,33 +242,52 @@ public class Parser {
 
             var nArgs = 0;
     
-            var ident = currentToken.lexeme;
+            var ident = currentLexeme;
             var symbol = symTable.resolve(ident); // classe ou objeto
             var functionName = ident + ".";
     
             if (peekTokenIs(TokenType.LPAREN)) { // método da propria classe
+                // com o indice, uma funcao da propria classe e chamada sem o this
+                var callee = index == null ? null : index.subroutine(className, ident);
+                var isMethod = callee == null || callee.kind() == TokenType.METHOD;
+                var line = currentLine;
+
                 expectPeek(TokenType.LPAREN);
-                vmWriter.writePush(Segment.POINTER, 0);
-                nArgs = parseExpressionList() + 1;
+                if (isMethod) {
+                    vmWriter.writePush(Segment.POINTER, 0);
+                }
+                nArgs = parseExpressionList();
                 expectPeek(TokenType.RPAREN);
+                if (index != null) {
+                    check(className, ident, isMethod, nArgs, line);
+                }
+                if (isMethod) {
+                    nArgs++;
+                }
                 functionName = className + "." + ident;
             } else {
                 // pode ser um metodo de um outro objeto ou uma função
                 expectPeek(TokenType.DOT);
                 expectPeek(TokenType.IDENT); // nome da função
+                var name = currentLexeme;
+                var line = currentLine;
     
                 if (symbol != null) { // é um metodo
-                    functionName = symbol.type() + "." + currentToken.lexeme;
+                    functionName = symbol.type() + "." + name;
                     vmWriter.writePush(kind2Segment(symbol.kind()), symbol.index());
                     nArgs = 1; // do proprio objeto
                 } else {
-                    functionName += currentToken.lexeme; // é uma função
+                    functionName += name; // é uma função
                 }
     
                 expectPeek(TokenType.LPAREN);
-                nArgs += parseExpressionList();
+                int nExpressions = parseExpressionList();
+                nArgs += nExpressions;
     
                 expectPeek(TokenType.RPAREN);
+                if (index != null) {
+                    check(symbol != null ? symbol.type() : ident, name, symbol != null, nExpressions, line);
+                }
             }
     
             vmWriter.writeCall(functionName, nArgs);
@@ -192,26 +301,28 @@ public class Parser {
 
         ifLabelNum = 0;
         whileLabelNum = 0;
+        stringLabelNum = 0;
 
         symTable.startSubroutine();
 
         expectPeek(TokenType.CONSTRUCTOR, TokenType.FUNCTION, TokenType.METHOD);
-        var subroutineType = currentToken.type;
+        var subroutineType = currentType;
 
         if (subroutineType == TokenType.METHOD) {
-            symTable.define("this", className, Kind.ARG);
+            define("this", className, Kind.ARG);
         }
 
         // 'int' | 'char' | 'boolean' | className
         expectPeek(TokenType.VOID, TokenType.INT, TokenType.CHAR, TokenType.BOOLEAN, TokenType.IDENT);
         expectPeek(TokenType.IDENT);
 
-        var functionName = className + "." + currentToken.value();
+        var functionName = className + "." + currentLexeme;
 
         expectPeek(TokenType.LPAREN);
         parseParameterList();
         expectPeek(TokenType.RPAREN);
         parseSubroutineBody(functionName, subroutineType);
+        vmWriter.flush();
 
         printNonTerminal("/subroutineDec");
     }
@@ -230,7 +341,7 @@ void parseSubroutineDec() {
         
 
         expectPeek(TokenType.CONSTRUCTOR, TokenType.FUNCTION, TokenType.METHOD);
-        var subroutineType = currentToken.type;
+        var subroutineType = currentType;
 
         if (subroutineType == TokenType.METHOD) {
             symTable.define("this", className, Kind.ARG);
@@ -241,7 +352,7 @@ void parseSubroutineDec() {
         expectPeek(TokenType.VOID, TokenType.INT, TokenType.CHAR, TokenType.BOOLEAN, TokenType.IDENT);
         expectPeek(TokenType.IDENT);
         
-        var functName = className + "." + currentToken.lexeme;
+        var functName = className + "." + currentLexeme;
         
 
         expectPeek(TokenType.LPAREN);
@@ -263,22 +374,22 @@ void parseSubroutineDec() {
         if (!peekTokenIs(TokenType.RPAREN)) 
         {
             expectPeek(TokenType.INT, TokenType.CHAR, TokenType.BOOLEAN, TokenType.IDENT);
-            String type = currentToken.lexeme;
+            String type = currentLexeme;
 
             expectPeek(TokenType.IDENT);
-            String name = currentToken.lexeme;
-            symTable.define(name, type, kind);
+            String name = currentLexeme;
+            define(name, type, kind);
             
 
             while (peekTokenIs(TokenType.COMMA)) {
                 expectPeek(TokenType.COMMA);
                 expectPeek(TokenType.INT, TokenType.CHAR, TokenType.BOOLEAN, TokenType.IDENT);
-                type = currentToken.lexeme;
+                type = currentLexeme;
 
                 expectPeek(TokenType.IDENT); 
-                name = currentToken.lexeme;
+                name = currentLexeme;
                 
-                symTable.define(name, type, kind);
+                define(name, type, kind);
             }
         }
         printNonTerminal("/parameterList");
@@ -293,13 +404,18 @@ void parseSubroutineDec() {
         expectPeek(TokenType.LET);
         expectPeek(TokenType.IDENT);
 
-        var symbol = symTable.resolve(currentToken.value());
+        var symbol = symTable.resolve(currentLexeme);
+        if (symbol == null) {
+            undefinedVariable();
+        }
 
         if (peekTokenIs(TokenType.LBRACKET)) { // array
             expectPeek(TokenType.LBRACKET);
             parseExpression();
             
-            vmWriter.writePush(kind2Segment(symbol.kind()), symbol.index());
+            if (symbol != null) {
+                vmWriter.writePush(kind2Segment(symbol.kind()), symbol.index());
+            }
             vmWriter.writeArithmetic(Command.ADD);
     
             expectPeek(TokenType.RBRACKET);
@@ -320,8 +436,8 @@ void parseSubroutineDec() {
             vmWriter.writePop(Segment.THAT, 0);    // Store right hand side evaluation in THAT 0.
     
 
-        } else {
-            //vmWriter.writePop(kind2Segment(symbol.kind()), symbol.index());
+        } else if (symbol != null) {
+            vmWriter.writePop(kind2Segment(symbol.kind()), symbol.index());
         }
 
         expectPeek(TokenType.SEMICOLON);
@@ -444,12 +560,16 @@ void parseSubroutineDec() {
      // statement*
      void parseStatements() {
         printNonTerminal("statements");
-        while (peekToken.type == TokenType.WHILE ||
-                peekToken.type == TokenType.IF ||
-                peekToken.type == TokenType.LET ||
-                peekToken.type == TokenType.DO ||
-                peekToken.type == TokenType.RETURN) {
-            parseStatement();
+        while (peekType == TokenType.WHILE ||
+                peekType == TokenType.IF ||
+                peekType == TokenType.LET ||
+                peekType == TokenType.DO ||
+                peekType == TokenType.RETURN) {
+            try {
+                parseStatement();
+            } catch (ParseError e) {
+                synchronize();
+            }
         }
 
         printNonTerminal("/statements");
@@ -457,7 +577,7 @@ void parseSubroutineDec() {
 
     // letStatement | ifStatement | whileStatement | doStatement | returnStatement
     void parseStatement() {
-        switch (peekToken.type) {
+        switch (peekType) {
             case LET:
                 parseLet();
                 break;
@@ -474,7 +594,7 @@ void parseSubroutineDec() {
                 parseDo();
                 break;
             default:
-                throw new Error("Expected a statement");
+                throw syntaxError();
         }
     }
 
@@ -521,15 +641,106 @@ void parseSubroutineDec() {
 
     // expression -> term (op term)*
    void parseExpression() {
+        compileExpression();
+        flushConstants();
+    }
+
+    // devolve true quando a expressao inteira e constante; o valor fica pendente em pendingConstants
+    private boolean compileExpression() {
         printNonTerminal("expression");
-        parseTerm();
-        while (isOperator(peekToken.type)) {
-            var ope = peekToken.type;
-            expectPeek(peekToken.type);
-            parseTerm();
+        boolean constant = parseTerm();
+        while (isOperator(peekType)) {
+            var ope = peekType;
+            expectPeek(peekType);
+
+            // k * x: o fator sai da pilha de pendentes para nao ser emitido antes de x
+            boolean factorAside = constant && ope == TokenType.ASTERISK
+                    && optimizations.contains(Optimization.STRENGTH_REDUCTION)
+                    && StrengthReduction.isReducibleFactor(pendingConstants[pendingCount - 1]);
+            int factor = factorAside ? pendingConstants[--pendingCount] : 0;
+
+            boolean right = parseTerm();
+            if (factorAside) {
+                if (!right) {
+                    flushConstants();
+                    StrengthReduction.multiplyBy(vmWriter, factor);
+                    constant = false;
+                    continue;
+                }
+                int value = pendingConstants[--pendingCount];
+                pushConstant(factor);
+                pushConstant(value);
+            }
+
+            if (constant && right && optimizations.contains(Optimization.CONSTANT_FOLDING) && foldOperator(ope)) {
+                continue;
+            }
+            if (right && optimizations.contains(Optimization.STRENGTH_REDUCTION) && reduceStrength(ope)) {
+                constant = false;
+                continue;
+            }
+            flushConstants();
             compileOperators(ope);
+            constant = false;
         }
         printNonTerminal("/expression");
+        return constant;
+    }
+
+    // Constantes literais nao sao emitidas na hora: ficam numa pilha ate que algum codigo nao constante
+    // precise delas (flushConstants), e assim operadores entre constantes sao calculados em tempo de compilacao.
+    private void pushConstant(int value) {
+        if (pendingCount == pendingConstants.length) {
+            pendingConstants = Arrays.copyOf(pendingConstants, pendingCount * 2);
+        }
+        pendingConstants[pendingCount++] = value;
+    }
+
+    private void flushConstants() {
+        for (int i = 0; i < pendingCount; i++) {
+            writeConstant(pendingConstants[i]);
+        }
+        pendingCount = 0;
+    }
+
+    // push constant so aceita 0..32767; negativos saem com neg (ou not, para -32768)
+    private void writeConstant(int value) {
+        if (value >= 0) {
+            vmWriter.writePush(Segment.CONST, value);
+        } else if (value == Short.MIN_VALUE) {
+            vmWriter.writePush(Segment.CONST, Short.MAX_VALUE);
+            vmWriter.writeArithmetic(Command.NOT);
+        } else {
+            vmWriter.writePush(Segment.CONST, -value);
+            vmWriter.writeArithmetic(Command.NEG);
+        }
+    }
+
+    private boolean deferConstants() {
+        return optimizations.contains(Optimization.CONSTANT_FOLDING)
+                || optimizations.contains(Optimization.STRENGTH_REDUCTION);
+    }
+
+    // x * k e x / 1 com k constante pendente no topo: evita as chamadas de Math.multiply e Math.divide
+    private boolean reduceStrength(TokenType type) {
+        int k = pendingConstants[pendingCount - 1];
+        if (type == TokenType.ASTERISK ? !StrengthReduction.isReducibleFactor(k) : type != TokenType.SLASH || k != 1) {
+            return false;
+        }
+        pendingCount--;
+        flushConstants();
+        StrengthReduction.multiplyBy(vmWriter, k);
+        return true;
+    }
+
+    private boolean foldOperator(TokenType type) {
+        int result = ConstantFolder.apply(type, pendingConstants[pendingCount - 2], pendingConstants[pendingCount - 1]);
+        if (result == ConstantFolder.NOT_FOLDED) {
+            return false;
+        }
+        pendingCount -= 2;
+        pushConstant(result);
+        return true;
     }
 
     public void compileOperators(TokenType type) {
@@ -574,79 +785,103 @@ void parseSubroutineDec() {
     }
     
      // term -> number | identifier | stringConstant | keywordConstant
-    void parseTerm() {
+    // devolve true quando o termo e constante e ficou pendente (so com CONSTANT_FOLDING)
+    boolean parseTerm() {
 
+        boolean constant = false;
         printNonTerminal("term");
-        switch (peekToken.type) {
+        switch (peekType) {
             case NUMBER:
                 expectPeek(TokenType.NUMBER);
-                vmWriter.writePush(Segment.CONST, Integer.parseInt(currentToken.lexeme));
-                System.out.println(currentToken);                
+                int intValue = integerConstant();
+                if (deferConstants()) {
+                    pushConstant(intValue);
+                    constant = true;
+                } else {
+                    vmWriter.writePush(Segment.CONST, intValue);
+                }
                 break;
 
             case STRING:
+                flushConstants();
                 expectPeek(TokenType.STRING);
-                var strValue = currentToken.lexeme;
-                vmWriter.writePush(Segment.CONST, strValue.length());
-                vmWriter.writeCall("String.new", 1);
-                for (int i = 0; i < strValue.length(); i++) {
-                    vmWriter.writePush(Segment.CONST, strValue.charAt(i));
-                    vmWriter.writeCall("String.appendChar", 2);
+                var strValue = currentLexeme;
+                if (optimizations.contains(Optimization.STRING_POOL)) {
+                    stringPool.write(vmWriter, strValue, symTable.varCount(Kind.STATIC), "STRING" + stringLabelNum++);
+                } else {
+                    StringPool.writeNew(vmWriter, strValue);
                 }
                 break;
             
 
             case IDENT:
-                
+                flushConstants();
                 expectPeek(TokenType.IDENT);
 
-                Symbol sym = symTable.resolve(currentToken.lexeme);
+                Symbol sym = symTable.resolve(currentLexeme);
                 
                 if (peekTokenIs(TokenType.LPAREN) || peekTokenIs(TokenType.DOT)) {
                     parseSubroutineCall();
                 } else { 
+                    if (sym == null) {
+                        undefinedVariable();
+                    }
                     if (peekTokenIs(TokenType.LBRACKET)) { 
                         expectPeek(TokenType.LBRACKET);
                         parseExpression();                        
-                        expectPeek(TokenType.RBRACKET);                       
-                    } else {
-                      //  vmWriter.writePush(kind2Segment(sym.kind()), sym.index());
+                        expectPeek(TokenType.RBRACKET);
+                        if (sym != null) {
+                            vmWriter.writePush(kind2Segment(sym.kind()), sym.index());
+                        }
+                        vmWriter.writeArithmetic(Command.ADD);
+                        vmWriter.writePop(Segment.POINTER, 1);
+                        vmWriter.writePush(Segment.THAT, 0);
+                    } else if (sym != null) {
+                        vmWriter.writePush(kind2Segment(sym.kind()), sym.index());
                     }
                 }
                 break;
             case FALSE:
             case NULL:
             case TRUE:
+                flushConstants();
                 expectPeek(TokenType.FALSE, TokenType.NULL, TokenType.TRUE);   
                 vmWriter.writePush(Segment.CONST, 0);
-                if (currentToken.type == TokenType.TRUE)
+                if (currentType == TokenType.TRUE)
                     vmWriter.writeArithmetic(Command.NOT);            
                 break;
             case THIS:
+                flushConstants();
                 expectPeek(TokenType.THIS); 
                 vmWriter.writePush(Segment.POINTER, 0);               
                 break;
 
             case LPAREN:
                 expectPeek(TokenType.LPAREN);
-                parseExpression();
+                constant = compileExpression();
                 expectPeek(TokenType.RPAREN);
                 break;
             case MINUS:
             case NOT:
                 expectPeek(TokenType.MINUS, TokenType.NOT);
-                var op = currentToken.type;
-                parseTerm();
-                if (op == TokenType.MINUS)
+                var op = currentType;
+                if (parseTerm() && optimizations.contains(Optimization.CONSTANT_FOLDING)) {
+                    int value = pendingConstants[pendingCount - 1];
+                    pendingConstants[pendingCount - 1] = (short) (op == TokenType.MINUS ? -value : ~value);
+                    constant = true;
+                } else if (op == TokenType.MINUS) {
+                    flushConstants();
                     vmWriter.writeArithmetic(Command.NEG);
-                else
+                } else {
+                    flushConstants();
                     vmWriter.writeArithmetic(Command.NOT);
-             
+                }
                 break;
             default:
-                throw new Error("term expected");
+                throw syntaxError();
         }
         printNonTerminal("/term");
+        return constant;
     }
 
     // 'do' subroutineCall ';'
@@ -667,7 +902,11 @@ void parseSubroutineDec() {
         printNonTerminal("subroutineBody");
         expectPeek(TokenType.LBRACE);
         while (peekTokenIs(TokenType.VAR)) {
-            parseVarDec();
+            try {
+                parseVarDec();
+            } catch (ParseError e) {
+                synchronize();
+            }
         }    
         var nlocals = symTable.varCount(Kind.VAR);
 
@@ -693,17 +932,87 @@ void parseSubroutineDec() {
     
 
     private void expectPeek(TokenType type) {
-        if (peekToken.type == type) {
+        if (peekType == type) {
             nextToken();
-            xmlOutput.append(String.format("%s\r\n", currentToken.toString()));
-        } 
+            if (xmlOutput != null) {
+                xmlOutput.append(new Token(currentType, currentLexeme, currentLine).toString()).append("\r\n");
+            }
+        } else {
+            throw syntaxError();
+        }
     }
 
    
     
 
     //Funções Auxiliares
+    // deve ser chamado antes de compilar qualquer coisa
+    public void enable(Optimization... enabled) {
+        for (Optimization optimization : enabled) {
+            if (optimizations.add(optimization) && optimization == Optimization.PEEPHOLE) {
+                vmWriter = new PeepholeOptimizer(vmWriter);
+            }
+        }
+    }
+
+    // chamadas passam a ser verificadas contra as assinaturas do projeto
+    public void useIndex(ClassIndex index) {
+        this.index = index;
+    }
+
+    // em vez de parar no primeiro erro, anota todos em errors() e segue a partir do proximo ';' ou '}'
+    public void enableRecovery(boolean enabled) {
+        errors = enabled ? new ArrayList<>() : null;
+    }
+
+    // os erros anotados, na ordem do fonte; o codigo VM so e valido se estiver vazia
+    public List<String> errors() {
+        return errors == null ? List.of() : Collections.unmodifiableList(errors);
+    }
+
+    // nome repetido no mesmo escopo: anotado como erro semantico, e a declaracao repetida e ignorada
+    private void define(String name, String type, Kind kind) {
+        if (symTable.isDefined(name, kind)) {
+            semanticError(new Error("variable " + name + " already defined at line " + currentLine));
+            return;
+        }
+        symTable.define(name, type, kind);
+    }
+
+    // trechos compilados fora de parseClass (testes de XML, por exemplo) nao tem declaracoes para conferir
+    private void undefinedVariable() {
+        if (className != null) {
+            semanticError(new Error("undefined variable " + currentLexeme + " at line " + currentLine));
+        }
+    }
+
+    // literal fora de 0..32767: anotado como erro semantico, e o termo vale 0 para seguir adiante
+    private int integerConstant() {
+        int value = Token.intValue(currentLexeme);
+        if (value < 0) {
+            semanticError(new Error("integer constant " + currentLexeme + " out of range at line " + currentLine));
+            return 0;
+        }
+        return value;
+    }
+
+    private void check(String className, String name, boolean onObject, int nArgs, int line) {
+        try {
+            index.check(className, name, onObject, nArgs, line);
+        } catch (Error e) {
+            semanticError(e);
+        }
+    }
+
+    // a arvore XML e um estagio opcional; desligada, o parser so gera codigo VM
+    public void enableXML(boolean enabled) {
+        xmlOutput = enabled ? new StringBuilder() : null;
+    }
+
     public String XMLOutput() {
+        if (xmlOutput == null) {
+            throw new IllegalStateException("XML output is disabled");
+        }
         return xmlOutput.toString();
     }
 
@@ -712,29 +1021,78 @@ void parseSubroutineDec() {
     }
 
     private void printNonTerminal(String nterminal) {
-        xmlOutput.append(String.format("<%s>\r\n", nterminal));
+        if (xmlOutput != null) {
+            xmlOutput.append('<').append(nterminal).append(">\r\n");
+        }
     }
 
     boolean peekTokenIs(TokenType type) {
-        return peekToken.type == type;
+        return peekType == type;
     }
 
     boolean currentTokenIs(TokenType type) {
-        return currentToken.type == type;
+        return currentType == type;
     }
 
     private void expectPeek(TokenType... types) {
         for (TokenType type : types) {
-            if (peekToken.type == type) {
+            if (peekType == type) {
                 expectPeek(type);
                 return;
             }
         }
 
-        throw new Error("Syntax error");
-        // throw new Error( "Expected a statement"");
+        throw syntaxError();
+    }
 
-        
+    // anota o erro no token seguinte; sem recuperacao o proprio Error interrompe a compilacao
+    private ParseError syntaxError() {
+        String message = "Syntax error at line " + peekLine + ": unexpected '" + peekLexeme + "'";
+        if (errors == null) {
+            throw new Error(message);
+        }
+        errors.add(message);
+        return new ParseError();
+    }
+
+    // erro semantico: nao desalinha o parser, entao nao precisa sincronizar
+    private void semanticError(Error error) {
+        if (errors == null) {
+            throw error;
+        }
+        errors.add(error.getMessage());
+    }
+
+    // modo panico: descarta tokens ate depois de um ';', antes de um '}' ou de uma palavra que
+    // comeca statement ou declaracao; um bloco '{ ... }' inteiro e descartado de uma vez
+    private void synchronize() {
+        pendingCount = 0;
+        while (true) {
+            switch (peekType) {
+                case SEMICOLON:
+                    nextToken();
+                    return;
+                case LBRACE:
+                    skipBlock();
+                    return;
+                case RBRACE:
+                case EOF:
+                case LET: case DO: case IF: case WHILE: case RETURN:
+                case STATIC: case FIELD: case CONSTRUCTOR: case FUNCTION: case METHOD:
+                    return;
+                default:
+                    nextToken();
+            }
+        }
+    }
+
+    private void skipBlock() {
+        int depth = 0;
+        do {
+            if (peekTokenIs(TokenType.LBRACE)) depth++;
+            else if (peekTokenIs(TokenType.RBRACE)) depth--;
+            nextToken();
+        } while (depth > 0 && !peekTokenIs(TokenType.EOF));
     }
 
     
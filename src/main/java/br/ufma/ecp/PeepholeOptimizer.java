@@ -0,0 +1,257 @@
+package br.ufma.ecp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import br.ufma.ecp.Instruction.Op;
+
+// Estagio entre o Parser e o VMWriter: guarda as instrucoes de uma subrotina, reescreve padroes
+// desnecessarios e so entao as repassa ao VMWriter de destino.
+public class PeepholeOptimizer extends VMWriter {
+
+    private final VMWriter target;
+    private List<Instruction> code = new ArrayList<>();
+
+    public PeepholeOptimizer(VMWriter target) {
+        this.target = target;
+    }
+
+    @Override
+    public String vmOutput() {
+        emit();
+        return target.vmOutput();
+    }
+
+    @Override
+    public void flush() {
+        emit();
+        target.flush();
+    }
+
+    @Override
+    void writePush(Segment segment, int index) {
+        code.add(Instruction.push(segment, index));
+    }
+
+    @Override
+    void writePop(Segment segment, int index) {
+        code.add(Instruction.pop(segment, index));
+    }
+
+    @Override
+    void writeArithmetic(Command command) {
+        code.add(Instruction.arithmetic(command));
+    }
+
+    @Override
+    void writeLabel(String label) {
+        code.add(Instruction.label(label));
+    }
+
+    @Override
+    void writeGoto(String label) {
+        code.add(Instruction.jump(label));
+    }
+
+    @Override
+    void writeIf(String label) {
+        code.add(Instruction.ifGoto(label));
+    }
+
+    @Override
+    void writeCall(String name, int nArgs) {
+        code.add(Instruction.call(name, nArgs));
+    }
+
+    // rotulos valem dentro da funcao: a subrotina anterior ja pode ser otimizada
+    @Override
+    void writeFunction(String name, int nLocals) {
+        emit();
+        code.add(Instruction.function(name, nLocals));
+    }
+
+    @Override
+    void writeReturn() {
+        code.add(Instruction.ret());
+    }
+
+    private void emit() {
+        for (Instruction instruction : optimize(code)) {
+            instruction.writeTo(target);
+        }
+        code = new ArrayList<>();
+    }
+
+    // aplica as regras ate nao haver mais mudanca
+    static List<Instruction> optimize(List<Instruction> code) {
+        while (true) {
+            var optimized = removeUnusedLabels(threadJumps(removeUnreachable(rewrite(code))));
+            if (optimized.equals(code)) {
+                return optimized;
+            }
+            code = optimized;
+        }
+    }
+
+    // janela sobre o fim da saida: cada reescrita pode habilitar outra com a instrucao anterior
+    private static List<Instruction> rewrite(List<Instruction> code) {
+        var out = new ArrayList<Instruction>(code.size());
+        for (Instruction instruction : code) {
+            out.add(instruction);
+            while (reduce(out))
+                ;
+        }
+        return out;
+    }
+
+    private static boolean reduce(List<Instruction> out) {
+        int n = out.size();
+        if (n < 2) {
+            return false;
+        }
+        Instruction last = out.get(n - 1);
+        Instruction prev = out.get(n - 2);
+        Instruction prev2 = n > 2 ? out.get(n - 3) : null;
+
+        // push x; pop x
+        if (last.is(Op.POP) && prev.isPush(last.segment(), last.index())) {
+            truncate(out, 2);
+            return true;
+        }
+
+        // not; not
+        if (last.is(Command.NOT) && prev.is(Command.NOT)) {
+            truncate(out, 2);
+            return true;
+        }
+
+        // push constant 0; if-goto L -> nunca salta
+        if (last.is(Op.IF_GOTO) && prev.isPush(Segment.CONST, 0)) {
+            truncate(out, 2);
+            return true;
+        }
+
+        // push constant 0; not; if-goto L -> sempre salta
+        if (last.is(Op.IF_GOTO) && prev.is(Command.NOT) && prev2 != null && prev2.isPush(Segment.CONST, 0)) {
+            truncate(out, 3);
+            out.add(Instruction.jump(last.name()));
+            return true;
+        }
+
+        // goto L; label L
+        if (last.is(Op.LABEL) && prev.is(Op.GOTO) && prev.name().equals(last.name())) {
+            truncate(out, 2);
+            out.add(last);
+            return true;
+        }
+
+        // if-goto A; goto B; label A -> not; if-goto B; label A
+        // so vale para condicoes -1/0: if-goto salta com qualquer valor diferente de zero, e o not de 4 nao e 0
+        if (last.is(Op.LABEL) && prev.is(Op.GOTO) && prev2 != null && prev2.is(Op.IF_GOTO)
+                && prev2.name().equals(last.name()) && isBoolean(out, n - 4)) {
+            truncate(out, 3);
+            out.add(Instruction.arithmetic(Command.NOT));
+            out.add(Instruction.ifGoto(prev.name()));
+            out.add(last);
+            return true;
+        }
+
+        return false;
+    }
+
+    // a instrucao em i sempre deixa -1 ou 0 na pilha
+    private static boolean isBoolean(List<Instruction> out, int i) {
+        if (i < 0) {
+            return false;
+        }
+        Instruction instruction = out.get(i);
+        if (instruction.is(Command.EQ) || instruction.is(Command.GT) || instruction.is(Command.LT)
+                || instruction.isPush(Segment.CONST, 0)) {
+            return true;
+        }
+        return instruction.is(Command.NOT) && isBoolean(out, i - 1);
+    }
+
+    private static void truncate(List<Instruction> out, int count) {
+        out.subList(out.size() - count, out.size()).clear();
+    }
+
+    // depois de goto ou return nada executa ate o proximo rotulo
+    private static List<Instruction> removeUnreachable(List<Instruction> code) {
+        var out = new ArrayList<Instruction>(code.size());
+        boolean reachable = true;
+        for (Instruction instruction : code) {
+            if (instruction.is(Op.LABEL) || instruction.is(Op.FUNCTION)) {
+                reachable = true;
+            }
+            if (reachable) {
+                out.add(instruction);
+            }
+            if (instruction.is(Op.GOTO) || instruction.is(Op.RETURN)) {
+                reachable = false;
+            }
+        }
+        return out;
+    }
+
+    // um salto para um rotulo seguido de goto M vai direto para M
+    private static List<Instruction> threadJumps(List<Instruction> code) {
+        Map<String, String> next = new HashMap<>();
+        for (int i = 0; i < code.size(); i++) {
+            if (!code.get(i).is(Op.LABEL)) {
+                continue;
+            }
+            int j = i + 1;
+            while (j < code.size() && code.get(j).is(Op.LABEL)) j++;
+            if (j < code.size() && code.get(j).is(Op.GOTO)) {
+                next.put(code.get(i).name(), code.get(j).name());
+            }
+        }
+        if (next.isEmpty()) {
+            return code;
+        }
+
+        var out = new ArrayList<Instruction>(code.size());
+        for (Instruction instruction : code) {
+            if (instruction.isJump() && next.containsKey(instruction.name())) {
+                String target = finalTarget(next, instruction.name());
+                instruction = new Instruction(instruction.op(), null, null, target, 0);
+            }
+            out.add(instruction);
+        }
+        return out;
+    }
+
+    // segue a cadeia de gotos; num ciclo mantem o rotulo original
+    private static String finalTarget(Map<String, String> next, String label) {
+        Set<String> visited = new HashSet<>();
+        String target = label;
+        while (next.containsKey(target)) {
+            if (!visited.add(target)) {
+                return label;
+            }
+            target = next.get(target);
+        }
+        return target;
+    }
+
+    private static List<Instruction> removeUnusedLabels(List<Instruction> code) {
+        Set<String> used = new HashSet<>();
+        for (Instruction instruction : code) {
+            if (instruction.isJump()) {
+                used.add(instruction.name());
+            }
+        }
+        var out = new ArrayList<Instruction>(code.size());
+        for (Instruction instruction : code) {
+            if (!instruction.is(Op.LABEL) || used.contains(instruction.name())) {
+                out.add(instruction);
+            }
+        }
+        return out;
+    }
+}
@@ -2,109 +2,253 @@ package br.ufma.ecp;
 
 import static br.ufma.ecp.token.TokenType.*;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 import br.ufma.ecp.token.Token;
+import br.ufma.ecp.token.NamePool;
+import br.ufma.ecp.token.TokenBuffer;
 import br.ufma.ecp.token.TokenType;
 
 public class Scanner {
 
-    private byte[] input;
+    private ByteBuffer input;
+    private final NamePool names; // identificadores canonicos
     private int current;
     private int start;
+    private int end;
     private int line = 1;
+    private int unterminated = -1; // inicio de um comentario de bloco sem fim, ainda nao reportado
 
-    private static final Map<String, TokenType> keywords;
- 
+    private static final byte[][] keywordBytes = new byte[TokenType.values().length][];
 
     static {
-        keywords = new HashMap<>();
-        keywords.put("while", TokenType.WHILE);
-        keywords.put("int", TokenType.INT);
-        keywords.put("class", TokenType.CLASS);
-        keywords.put("constructor", TokenType.CONSTRUCTOR);
-        keywords.put("function", TokenType.FUNCTION);
-        keywords.put("method", TokenType.METHOD);
-        keywords.put("field", TokenType.FIELD);
-        keywords.put("static", TokenType.STATIC);
-        keywords.put("var", TokenType.VAR);
-        keywords.put("char", TokenType.CHAR);
-        keywords.put("boolean", TokenType.BOOLEAN);
-        keywords.put("void", TokenType.VOID);
-        keywords.put("true", TokenType.TRUE);
-        keywords.put("false", TokenType.FALSE);
-        keywords.put("null", TokenType.NULL);
-        keywords.put("this", TokenType.THIS);
-        keywords.put("let", TokenType.LET);
-        keywords.put("do", TokenType.DO);
-        keywords.put("if", TokenType.IF);
-        keywords.put("else", TokenType.ELSE);
-        keywords.put("return", TokenType.RETURN);
-  }
+        for (TokenType type : TokenType.values()) {
+            if (TokenType.isKeyword(type)) {
+                keywordBytes[type.ordinal()] = TokenType.lexeme(type).getBytes(StandardCharsets.US_ASCII);
+            }
+        }
+    }
+
+    // classifica a palavra direto nos bytes: escolhe o candidato pelo tamanho e pela primeira letra
+    // e so entao compara o resto, sem criar String nem calcular hash
+    static TokenType keyword (ByteBuffer input, int start, int length) {
+        TokenType candidate = null;
+        byte first = input.get(start);
+        switch (length) {
+            case 2:
+                if (first == 'd') candidate = DO;
+                else if (first == 'i') candidate = IF;
+                break;
+            case 3:
+                if (first == 'i') candidate = INT;
+                else if (first == 'v') candidate = VAR;
+                else if (first == 'l') candidate = LET;
+                break;
+            case 4:
+                if (first == 'c') candidate = CHAR;
+                else if (first == 'v') candidate = VOID;
+                else if (first == 'n') candidate = NULL;
+                else if (first == 'e') candidate = ELSE;
+                else if (first == 't') candidate = input.get(start + 1) == 'r' ? TRUE : THIS;
+                break;
+            case 5:
+                if (first == 'w') candidate = WHILE;
+                else if (first == 'c') candidate = CLASS;
+                else if (first == 'f') candidate = input.get(start + 1) == 'i' ? FIELD : FALSE;
+                break;
+            case 6:
+                if (first == 'm') candidate = METHOD;
+                else if (first == 's') candidate = STATIC;
+                else if (first == 'r') candidate = RETURN;
+                break;
+            case 7:
+                if (first == 'b') candidate = BOOLEAN;
+                break;
+            case 8:
+                if (first == 'f') candidate = FUNCTION;
+                break;
+            case 11:
+                if (first == 'c') candidate = CONSTRUCTOR;
+                break;
+        }
+        if (candidate == null) {
+            return IDENT;
+        }
+
+        byte[] word = keywordBytes[candidate.ordinal()];
+        for (int i = 1; i < length; i++) {
+            if (input.get(start + i) != word[i]) {
+                return IDENT;
+            }
+        }
+        return candidate;
+    }
 
     
     public Scanner (byte[] input) {
-        this.input = input;
+        this(ByteBuffer.wrap(input));
+    }
+
+    // varre o buffer direto, sem copiar para o heap; os indices sao relativos a posicao atual
+    public Scanner (ByteBuffer input) {
+        this(input, new NamePool());
+    }
+
+    // names pode ser compartilhado entre Scanners da mesma thread
+    public Scanner (ByteBuffer input, NamePool names) {
+        this.names = names;
+        this.input = input.slice();
         current = 0;
         start = 0;
     }
 
-    private void skipBlockComments() {
-        boolean endComment = false;
-        advance();
-        while (!endComment) {
-            advance();
-            char ch = peek();
-            if (ch == '\n')
+    // mapeia o arquivo em memoria (MappedByteBuffer) em vez de le-lo para um byte[]
+    public Scanner (Path path) throws IOException {
+        this(map(path));
+    }
+
+    static ByteBuffer map (Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+
+    // marca com 0x80 os bytes de word iguais a b (exato: sem falsos positivos, da para contar)
+    private static long matches (long word, char b) {
+        long x = word ^ (ONES * b);
+        long t = (x & LOW7) + LOW7;
+        return ~(t | x | LOW7);
+    }
+
+    // espacos e comentarios num laco so: uma sequencia de comentarios nao empilha chamadas
+    private void skipWhitespace() {
+        int limit = input.limit();
+        int i = current;
+        while (i < limit) {
+            byte ch = input.get(i);
+            if (ch == '\n') {
                 line++;
-            if ( ch == 0) { // eof, lexical error
-                System.exit(1);
-            }
-         
-            if (ch == '*') {
-               for (ch = peek(); ch == '*';  advance(), ch = peek()) ;
-                if (ch == '/') {
-                    endComment = true;
-                    advance();
+                i++;
+            } else if (ch == ' ' || ch == '\r' || ch == '\t') {
+                i++;
+            } else if (ch == '/' && i + 1 < limit && input.get(i + 1) == '/') {
+                i = skipLineComment(i + 2, limit);
+            } else if (ch == '/' && i + 1 < limit && input.get(i + 1) == '*') {
+                int commentLine = line;
+                int next = skipBlockComment(i + 2, limit);
+                if (next < 0) { // sem "*/": o resto do arquivo e comentario
+                    unterminated = i;
+                    line = commentLine;
+                    i = limit;
+                } else {
+                    i = next;
                 }
+            } else {
+                break;
             }
+        }
+        current = i;
+    }
 
+    // para no '\n', que o laco de fora conta; pula 8 bytes por vez enquanto nao ha '\n'
+    private int skipLineComment(int i, int limit) {
+        while (i + 8 <= limit && matches(input.getLong(i), '\n') == 0) {
+            i += 8;
+        }
+        while (i < limit && input.get(i) != '\n') {
+            i++;
         }
+        return i;
     }
 
-    private void skipLineComments() {
-        for (char ch = peek(); ch != '\n' && ch != 0; advance(), ch = peek())
-            if (ch == '\n')
+    // devolve a posicao depois do "*/", ou -1 se o arquivo acaba antes;
+    // blocos de 8 bytes sem '*' so tem as quebras de linha contadas
+    private int skipBlockComment(int i, int limit) {
+        while (true) {
+            while (i + 8 <= limit) {
+                long word = input.getLong(i);
+                if (matches(word, '*') != 0) {
+                    break;
+                }
+                line += Long.bitCount(matches(word, '\n'));
+                i += 8;
+            }
+            if (i >= limit) {
+                return -1;
+            }
+            byte ch = input.get(i++);
+            if (ch == '\n') {
                 line++;
+            } else if (ch == '*' && i < limit && input.get(i) == '/') {
+                return i + 1;
+            }
+        }
     }
 
-    private void skipWhitespace() {
-        char ch = peek();
-        while (ch == ' ' || ch == '\r' || ch == '\t' || ch == '\n') {
+    public Token nextToken () {
+        TokenType type = scan();
+        return new Token(type, lexeme(type), line);
+    }
 
-            if (ch == '\n')
-                line++;
+    // como nextToken, sem criar o Token: o lexema e a linha do token lido ficam em lexeme(type) e line()
+    TokenType next () {
+        return scan();
+    }
 
-            advance();
-            ch = peek();
-        }
+    int line () {
+        return line;
+    }
+
+    // modo sem alocacao: guarda (tipo, inicio, tamanho, linha) de cada token num int[]
+    public TokenBuffer tokenize () {
+        TokenBuffer tokens = new TokenBuffer(input, names);
+        TokenType type;
+        do {
+            type = scan();
+            tokens.add(type, start, end - start, line);
+        } while (type != EOF);
+        return tokens;
     }
 
-    private char peekNext () {
-        int next = current + 1;
-        if ( next  < input.length) {
-            return (char)input[next];
-        } else {
-            return 0;
+    String lexeme (TokenType type) {
+        String fixed = TokenType.lexeme(type);
+        if (fixed != null) {
+            return fixed;
+        }
+        if (type == IDENT) {
+            return names.intern(input, start, end-start);
         }
-   }
+        return TokenBuffer.decode(input, start, end-start);
+    }
 
-    public Token nextToken () {
+    // reconhece o proximo token; o lexema fica em input[start, end)
+    private TokenType scan () {
+        end = -1;
+        TokenType type = match();
+        if (end < 0) end = current;
+        return type;
+    }
+
+    private TokenType match () {
 
         skipWhitespace();
 
+        // erro lexico vira um token ILLEGAL com o "/*", para o parser reportar
+        if (unterminated >= 0) {
+            start = unterminated;
+            end = start + 2;
+            unterminated = -1;
+            return ILLEGAL;
+        }
+
         start = current;
         char ch = peek();
 
@@ -120,109 +264,95 @@ public class Scanner {
 
             case '*':
                 advance();
-                return new Token (TokenType.ASTERISK,"*", line); 
+                return ASTERISK;
             case '.':
                 advance();
-                return new Token (TokenType.DOT,".", line); 
+                return DOT;
             case '&':
                 advance();
-                return new Token (TokenType.AND,"&", line); 
+                return AND;
             case '|':
                 advance();
-                return new Token (TokenType.OR,"|", line); 
+                return OR;
             case '~':
                 advance();
-                return new Token (TokenType.NOT,"~", line); 
+                return NOT;
 
             case '>':
                 advance();
-                return new Token (TokenType.GT,">", line); 
+                return GT;
             case '<':
                 advance();
-                return new Token (TokenType.LT,"<", line); 
+                return LT;
             case '=':
                 advance();
-                return new Token (TokenType.EQ,"=", line); 
+                return EQ;
             case '(':
                 advance();
-                return new Token (TokenType.LPAREN,"(", line); 
+                return LPAREN;
             case ')':
                 advance();
-                return new Token (TokenType.RPAREN,")", line); 
+                return RPAREN;
             case '{':
                 advance();
-                return new Token (TokenType.LBRACE,"{", line); 
+                return LBRACE;
             case '}':
                 advance();
-                return new Token (TokenType.RBRACE,"}", line); 
+                return RBRACE;
             case '[':
                 advance();
-                return new Token (TokenType.LBRACKET,"[", line); 
+                return LBRACKET;
             case ']':
                 advance();
-                return new Token (TokenType.RBRACKET,"]", line); 
+                return RBRACKET;
             case ';':
                 advance();
-                return new Token (TokenType.SEMICOLON,";", line); 
+                return SEMICOLON;
             case ',':
                 advance();
-                return new Token (TokenType.COMMA,",", line);
+                return COMMA;
             case '+':
                 advance();
-                return new Token(TokenType.PLUS, "+", line);
+                return PLUS;
             case '-':
                 advance();
-                return new Token (MINUS,"-", line);
-            case '/':
-                if (peekNext() == '/') {
-                    skipLineComments();
-                    return nextToken();
-                } else if (peekNext() == '*') {
-                    skipBlockComments();
-                    return nextToken();
-                }
-                else {
-                    advance();
-                    return new Token (TokenType.SLASH,"/", line);
-                }
+                return MINUS;
+            case '/': // comentarios ja foram pulados
+                advance();
+                return SLASH;
             case '"':
                 return string();
             case 0:
-                return new Token (EOF,"EOF", line);
+                return EOF;
             default:
                 advance();
-                return new Token(ILLEGAL, Character.toString(ch), line);
+                return ILLEGAL;
         }
     }
 
-    private Token identifier() {
+    private TokenType identifier() {
         while (isAlphaNumeric(peek())) advance();
 
-        String id = new String(input, start, current-start, StandardCharsets.UTF_8)  ;
-        TokenType type = keywords.get(id);
-        if (type == null) type = IDENT;
-        return new Token(type, id, line);
+        return keyword(input, start, current-start);
     }
 
-    private Token number() {
+    private TokenType number() {
         while (Character.isDigit(peek())) {
             advance();
         }
-        
-            String num = new String(input, start, current-start, StandardCharsets.UTF_8)  ;
-            return new Token(NUMBER, num, line);
+        return NUMBER;
     }
 
-    private Token string () {
+    // o lexema exclui as aspas
+    private TokenType string () {
         advance();
         start = current;
         while (peek() != '"' && peek() != 0) {
             advance();
         }
-        String s = new String(input, start, current-start, StandardCharsets.UTF_8);
-        Token token = new Token (TokenType.STRING,s, line);
+        end = current;
         advance();
-        return token;
+        return STRING;
  }
 
     private void advance()  {
@@ -244,8 +374,8 @@ public class Scanner {
     
 
     private char peek () {
-        if (current < input.length)
-           return (char)input[current];
+        if (current < input.limit())
+           return (char)input.get(current);
        return 0;
     }
 
@@ -0,0 +1,49 @@
+package br.ufma.ecp;
+
+import br.ufma.ecp.VMWriter.Command;
+import br.ufma.ecp.VMWriter.Segment;
+
+// Multiplicacao por constante sem Math.multiply, usada pelo Parser e pelo CodeGenerator
+final class StrengthReduction {
+
+    private static final int MAX_REDUCED_FACTOR = 16; // acima disso so potencias de 2 viram somas
+
+    private StrengthReduction() {
+    }
+
+    static boolean isReducibleFactor(int k) {
+        return k >= -1 && (k <= MAX_REDUCED_FACTOR || Integer.bitCount(k) == 1);
+    }
+
+    // multiplica o topo da pilha por k com somas; temp 1 guarda x e temp 2 o acumulador
+    static void multiplyBy(VMWriter vmWriter, int k) {
+        if (k == 0) {
+            vmWriter.writePop(Segment.TEMP, 1); // x ainda e avaliado, pelos efeitos colaterais
+            vmWriter.writePush(Segment.CONST, 0);
+        } else if (k == -1) {
+            vmWriter.writeArithmetic(Command.NEG);
+        } else if (Integer.bitCount(k) == 1) {
+            for (int i = Integer.numberOfTrailingZeros(k); i > 0; i--) {
+                doubleTop(vmWriter);
+            }
+        } else {
+            vmWriter.writePop(Segment.TEMP, 1);
+            vmWriter.writePush(Segment.TEMP, 1);
+            for (int bit = Integer.highestOneBit(k) >> 1; bit > 0; bit >>= 1) {
+                doubleTop(vmWriter);
+                if ((k & bit) != 0) {
+                    vmWriter.writePush(Segment.TEMP, 1);
+                    vmWriter.writeArithmetic(Command.ADD);
+                }
+            }
+        }
+    }
+
+    private static void doubleTop(VMWriter vmWriter) {
+        vmWriter.writePop(Segment.TEMP, 2);
+        vmWriter.writePush(Segment.TEMP, 2);
+        vmWriter.writePush(Segment.TEMP, 2);
+        vmWriter.writeArithmetic(Command.ADD);
+    }
+
+}
@@ -0,0 +1,48 @@
+package br.ufma.ecp;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import br.ufma.ecp.VMWriter.Segment;
+
+// Literais de string de uma classe guardados em variaveis static depois das declaradas.
+// Cada literal distinto e construido uma vez, no primeiro uso; os usos seguintes so leem o static.
+final class StringPool {
+
+    private final Map<String, Integer> slots = new HashMap<>();
+
+    // os statics da classe ja foram todos declarados quando o primeiro literal aparece
+    int slot(String literal, int staticCount) {
+        Integer slot = slots.get(literal);
+        if (slot == null) {
+            slot = staticCount + slots.size();
+            slots.put(literal, slot);
+        }
+        return slot;
+    }
+
+    int size() {
+        return slots.size();
+    }
+
+    // um ponteiro valido nunca e 0, entao o proprio static diz se a string ja existe
+    void write(VMWriter vmWriter, String literal, int staticCount, String label) {
+        int slot = slot(literal, staticCount);
+        vmWriter.writePush(Segment.STATIC, slot);
+        vmWriter.writeIf(label);
+        writeNew(vmWriter, literal);
+        vmWriter.writePop(Segment.STATIC, slot);
+        vmWriter.writeLabel(label);
+        vmWriter.writePush(Segment.STATIC, slot);
+    }
+
+    static void writeNew(VMWriter vmWriter, String literal) {
+        vmWriter.writePush(Segment.CONST, literal.length());
+        vmWriter.writeCall("String.new", 1);
+        for (int i = 0; i < literal.length(); i++) {
+            vmWriter.writePush(Segment.CONST, literal.charAt(i));
+            vmWriter.writeCall("String.appendChar", 2);
+        }
+    }
+
+}
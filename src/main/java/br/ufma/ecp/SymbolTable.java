@@ -1,7 +1,6 @@
 package br.ufma.ecp;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 public class SymbolTable {
 
@@ -12,32 +11,22 @@ public class SymbolTable {
     public static record Symbol(String name, String type, Kind kind, int index) {
     }
 
-    private Map<String, Symbol> classScope;
-    private Map<String, Symbol> subroutineScope;
-    private Map<Kind, Integer> countVars;
+    private final Scope classScope = new Scope();
+    private final Scope subroutineScope = new Scope();
+    private final int[] countVars = new int[Kind.values().length]; // indexado por Kind.ordinal()
 
     public SymbolTable() {
-        classScope = new HashMap<>();
-        subroutineScope = new HashMap<>();
-        countVars = new HashMap<>();
-
-        countVars.put(Kind.ARG, 0);
-        countVars.put(Kind.VAR, 0);
-        countVars.put(Kind.STATIC, 0);
-        countVars.put(Kind.FIELD, 0);
-        
     }
 
     public void startSubroutine() {
 
         subroutineScope.clear();
-        countVars.put(Kind.ARG, 0);
-        countVars.put(Kind.VAR, 0);
-
+        countVars[Kind.ARG.ordinal()] = 0;
+        countVars[Kind.VAR.ordinal()] = 0;
 
     }
 
-    private Map<String,Symbol> scope (Kind kind) {
+    private Scope scope (Kind kind) {
         if (kind == Kind.STATIC || kind == Kind.FIELD){
             return classScope;
         } else {
@@ -45,27 +34,98 @@ public class SymbolTable {
         }
     }
 
+    // o Parser e o CodeGenerator consultam isDefined antes e reportam o nome repetido como erro de compilacao
     void define(String name, String type, Kind kind) {
 
-        Map<String,Symbol> scopeTable = scope(kind);
+        Scope scopeTable = scope(kind);
         if (scopeTable.get(name) != null) throw new RuntimeException ("variable already defined");
 
-        Symbol s = new Symbol(name, type, kind, varCount(kind));
-        scopeTable.put(name, s);
+        scopeTable.put(new Symbol(name, type, kind, countVars[kind.ordinal()]++));
 
-         countVars.put(kind, countVars.get(kind) + 1);
+    }
 
+    // so no escopo de kind: uma variavel local pode esconder um campo
+    boolean isDefined(String name, Kind kind) {
+        return scope(kind).get(name) != null;
     }
 
     public Symbol resolve (String name) {
         Symbol s = subroutineScope.get(name);
         if (s != null) return s;
         else return classScope.get(name);
-        
+
     }
 
     int varCount(Kind kind) {
-        return countVars.get(kind);
+        return countVars[kind.ordinal()];
+    }
+
+    // tabela hash de enderecamento aberto (sondagem linear) em dois arrays paralelos:
+    // nada e alocado por busca nem por insercao, e limpar o escopo reaproveita os arrays
+    private static final class Scope {
+
+        private String[] names = new String[16];
+        private Symbol[] symbols = new Symbol[16];
+        private int size;
+
+        // como o HashMap de antes, aceita null (e nao encontra nada)
+        Symbol get(String name) {
+            if (name == null) {
+                return null;
+            }
+            int mask = names.length - 1;
+            for (int i = hash(name) & mask; ; i = (i + 1) & mask) {
+                String key = names[i];
+                if (key == null) {
+                    return null;
+                }
+                if (key == name || key.equals(name)) {
+                    return symbols[i];
+                }
+            }
+        }
+
+        void put(Symbol symbol) {
+            if (2 * (size + 1) > names.length) {
+                grow();
+            }
+            insert(symbol);
+            size++;
+        }
+
+        void clear() {
+            if (size > 0) {
+                Arrays.fill(names, null);
+                Arrays.fill(symbols, null);
+                size = 0;
+            }
+        }
+
+        private void insert(Symbol symbol) {
+            int mask = names.length - 1;
+            int i = hash(symbol.name()) & mask;
+            while (names[i] != null) {
+                i = (i + 1) & mask;
+            }
+            names[i] = symbol.name();
+            symbols[i] = symbol;
+        }
+
+        private void grow() {
+            Symbol[] old = symbols;
+            names = new String[old.length * 2];
+            symbols = new Symbol[old.length * 2];
+            for (Symbol symbol : old) {
+                if (symbol != null) {
+                    insert(symbol);
+                }
+            }
+        }
+
+        private static int hash(String name) {
+            int h = name.hashCode();
+            return h ^ (h >>> 16);
+        }
     }
 
-}
\ No newline at end of file
+}
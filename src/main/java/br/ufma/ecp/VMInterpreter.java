@@ -0,0 +1,675 @@
+package br.ufma.ecp;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import br.ufma.ecp.VMWriter.Command;
+import br.ufma.ecp.VMWriter.Segment;
+
+// Executa codigo VM no proprio processo e conta as instrucoes executadas por funcao: uma medida
+// local e reproduzivel do efeito de cada otimizacao sobre o codigo gerado.
+//
+// O codigo e decodificado uma vez num int[] (operacao, operando, operando), com rotulos e funcoes
+// ja resolvidos para indices e static/temp/pointer para enderecos absolutos. A memoria segue o
+// Hack: pilha a partir de 256, statics em 16..255, heap a partir de 2048. As funcoes do SO que nao
+// forem carregadas (Math, Memory, String, Array, Output, ...) sao atendidas por versoes nativas minimas.
+public class VMInterpreter {
+
+    // operacoes; PUSH_RAM/POP_RAM cobrem static, temp e pointer
+    private static final int PUSH_CONST = 0, PUSH_LOCAL = 1, PUSH_ARG = 2, PUSH_THIS = 3, PUSH_THAT = 4,
+            PUSH_RAM = 5, POP_LOCAL = 6, POP_ARG = 7, POP_THIS = 8, POP_THAT = 9, POP_RAM = 10,
+            ADD = 11, SUB = 12, NEG = 13, EQ = 14, GT = 15, LT = 16, AND = 17, OR = 18, NOT = 19,
+            GOTO = 20, IF_GOTO = 21, CALL = 22, FUNCTION = 23, RETURN = 24;
+    private static final int STRIDE = 3;
+
+    private static final int STACK = 256;
+    private static final int STACK_END = 2048;
+    private static final int HEAP = 2048;
+    private static final int HEAP_END = 16384;
+    private static final int STATICS = 16;
+
+    private static final String[] NATIVES = {
+        "Math.multiply", "Math.divide", "Math.min", "Math.max", "Math.abs", "Math.sqrt",
+        "Memory.alloc", "Memory.deAlloc", "Memory.peek", "Memory.poke", "Array.new", "Array.dispose",
+        "String.new", "String.dispose", "String.length", "String.charAt", "String.setCharAt",
+        "String.appendChar", "String.eraseLastChar", "String.intValue", "String.setInt",
+        "String.newLine", "String.backSpace", "String.doubleQuote",
+        "Output.printString", "Output.printInt", "Output.printChar", "Output.println",
+        "Output.moveCursor", "Output.backSpace", "Keyboard.keyPressed",
+        "Screen.clearScreen", "Screen.setColor", "Screen.drawPixel", "Screen.drawLine",
+        "Screen.drawRectangle", "Screen.drawCircle", "Sys.halt", "Sys.wait", "Sys.error"
+    };
+
+    // SO nativo: indices em NATIVES, resolvidos por nome em link(); callNative escolhe pelo indice
+    private static final int MATH_MULTIPLY = 0, MATH_DIVIDE = 1, MATH_MIN = 2, MATH_MAX = 3, MATH_ABS = 4,
+            MATH_SQRT = 5, MEMORY_ALLOC = 6, MEMORY_DE_ALLOC = 7, MEMORY_PEEK = 8, MEMORY_POKE = 9,
+            ARRAY_NEW = 10, ARRAY_DISPOSE = 11, STRING_NEW = 12, STRING_DISPOSE = 13, STRING_LENGTH = 14,
+            STRING_CHAR_AT = 15, STRING_SET_CHAR_AT = 16, STRING_APPEND_CHAR = 17, STRING_ERASE_LAST_CHAR = 18,
+            STRING_INT_VALUE = 19, STRING_SET_INT = 20, STRING_NEW_LINE = 21, STRING_BACK_SPACE = 22,
+            STRING_DOUBLE_QUOTE = 23, OUTPUT_PRINT_STRING = 24, OUTPUT_PRINT_INT = 25, OUTPUT_PRINT_CHAR = 26,
+            OUTPUT_PRINTLN = 27, OUTPUT_MOVE_CURSOR = 28, OUTPUT_BACK_SPACE = 29, KEYBOARD_KEY_PRESSED = 30,
+            SCREEN_CLEAR_SCREEN = 31, SCREEN_SET_COLOR = 32, SCREEN_DRAW_PIXEL = 33, SCREEN_DRAW_LINE = 34,
+            SCREEN_DRAW_RECTANGLE = 35, SCREEN_DRAW_CIRCLE = 36, SYS_HALT = 37, SYS_WAIT = 38, SYS_ERROR = 39;
+
+    private int[] code = new int[1024 * STRIDE];
+    private int size; // instrucoes
+    private final List<String> names = new ArrayList<>(); // funcoes, pelo indice usado no CALL
+    private final Map<String, Integer> ids = new HashMap<>();
+    private int[] entries = new int[64]; // instrucao FUNCTION de cada funcao; -1 se nao foi carregada
+    private final Map<String, Integer> statics = new HashMap<>(); // "Classe.i" -> endereco
+    private int nextStatic = STATICS;
+
+    // GOTO/IF_GOTO apontam para rotulos, resolvidos em link() dentro da funcao
+    private final List<String> jumps = new ArrayList<>();
+    private final Map<String, Integer> labels = new HashMap<>();
+    private String function; // funcao sendo carregada
+    private boolean linked;
+
+    private final int[] ram = new int[32768];
+    private long[] counts;
+    private int[] natives;
+    private int heap;
+    private boolean halted;
+    private final StringBuilder output = new StringBuilder();
+
+    // o codigo gerado vai direto para o interpretador, sem passar por texto
+    public VMWriter writer() {
+        return new Loader();
+    }
+
+    // texto VM, como o dos arquivos .vm
+    public void load(String vmCode) {
+        var loader = new Loader();
+        for (String line : vmCode.split("\n")) {
+            int comment = line.indexOf("//");
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] words = line.split("\\s+");
+            switch (words[0]) {
+                case "push":
+                    loader.writePush(segment(words[1]), Integer.parseInt(words[2]));
+                    break;
+                case "pop":
+                    loader.writePop(segment(words[1]), Integer.parseInt(words[2]));
+                    break;
+                case "label":
+                    loader.writeLabel(words[1]);
+                    break;
+                case "goto":
+                    loader.writeGoto(words[1]);
+                    break;
+                case "if-goto":
+                    loader.writeIf(words[1]);
+                    break;
+                case "call":
+                    loader.writeCall(words[1], Integer.parseInt(words[2]));
+                    break;
+                case "function":
+                    loader.writeFunction(words[1], Integer.parseInt(words[2]));
+                    break;
+                case "return":
+                    loader.writeReturn();
+                    break;
+                default:
+                    loader.writeArithmetic(Command.valueOf(words[0].toUpperCase()));
+            }
+        }
+    }
+
+    // .vm em texto ou no formato do BinaryVMWriter
+    public void load(Path file) throws IOException {
+        var input = Scanner.map(file);
+        if (BinaryVMReader.isBinary(input)) {
+            BinaryVMReader.read(input, writer());
+        } else {
+            load(StandardCharsets.US_ASCII.decode(input).toString());
+        }
+    }
+
+    public boolean hasFunction(String name) {
+        Integer id = ids.get(name);
+        return id != null && entries[id] >= 0;
+    }
+
+    // executa a funcao sem argumentos ate ela retornar ou ate Sys.halt; devolve o valor de retorno
+    public int run(String entry, long maxInstructions) {
+        link();
+        if (!hasFunction(entry)) {
+            throw new IllegalArgumentException("no function " + entry);
+        }
+        counts = new long[names.size()];
+        heap = HEAP;
+        halted = false;
+        try {
+            return execute(ids.get(entry), maxInstructions);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalStateException("invalid memory access: " + e.getMessage());
+        }
+    }
+
+    // instrucoes executadas por funcao, da mais cara para a mais barata; uma funcao nativa conta
+    // uma instrucao por chamada (no SO de verdade Math.multiply e Math.divide custam centenas)
+    public Map<String, Long> profile() {
+        if (counts == null) {
+            return Map.of();
+        }
+        var order = new ArrayList<Integer>();
+        for (int i = 0; i < names.size(); i++) {
+            if (counts[i] > 0) {
+                order.add(i);
+            }
+        }
+        order.sort((a, b) -> Long.compare(counts[b], counts[a]));
+        var profile = new LinkedHashMap<String, Long>();
+        for (int i : order) {
+            profile.put(names.get(i), counts[i]);
+        }
+        return profile;
+    }
+
+    public long instructions() {
+        return counts == null ? 0 : Arrays.stream(counts).sum();
+    }
+
+    // o que o programa escreveu com Output
+    public String output() {
+        return output.toString();
+    }
+
+    public int peek(int address) {
+        return ram[address];
+    }
+
+    private int execute(int entry, long maxInstructions) {
+        final int[] code = this.code;
+        final int[] ram = this.ram;
+        final long[] counts = this.counts;
+        int[] callers = new int[64]; // funcao de cada frame, para atribuir as contagens
+        int depth = 0;
+
+        // frame da chamada inicial: volta para -1
+        int sp = STACK;
+        ram[sp++] = -1;
+        sp += 4;
+        int arg = sp - 5;
+        int lcl = sp;
+        int fn = entry;
+        int pc = entries[entry];
+
+        for (long executed = 0; ; executed++) {
+            if (executed == maxInstructions) {
+                throw new IllegalStateException("instruction limit reached in " + names.get(fn));
+            }
+            counts[fn]++;
+            int i = pc * STRIDE;
+            int a = code[i + 1];
+            pc++;
+            switch (code[i]) {
+                case PUSH_CONST:
+                    ram[sp++] = a;
+                    break;
+                case PUSH_LOCAL:
+                    ram[sp++] = ram[lcl + a];
+                    break;
+                case PUSH_ARG:
+                    ram[sp++] = ram[arg + a];
+                    break;
+                case PUSH_THIS:
+                    ram[sp++] = ram[ram[3] + a];
+                    break;
+                case PUSH_THAT:
+                    ram[sp++] = ram[ram[4] + a];
+                    break;
+                case PUSH_RAM:
+                    ram[sp++] = ram[a];
+                    break;
+                case POP_LOCAL:
+                    ram[lcl + a] = ram[--sp];
+                    break;
+                case POP_ARG:
+                    ram[arg + a] = ram[--sp];
+                    break;
+                case POP_THIS:
+                    ram[ram[3] + a] = ram[--sp];
+                    break;
+                case POP_THAT:
+                    ram[ram[4] + a] = ram[--sp];
+                    break;
+                case POP_RAM:
+                    ram[a] = ram[--sp];
+                    break;
+                case ADD:
+                    sp--;
+                    ram[sp - 1] = (short) (ram[sp - 1] + ram[sp]);
+                    break;
+                case SUB:
+                    sp--;
+                    ram[sp - 1] = (short) (ram[sp - 1] - ram[sp]);
+                    break;
+                case NEG:
+                    ram[sp - 1] = (short) -ram[sp - 1];
+                    break;
+                case EQ:
+                    sp--;
+                    ram[sp - 1] = ram[sp - 1] == ram[sp] ? -1 : 0;
+                    break;
+                case GT:
+                    sp--;
+                    ram[sp - 1] = ram[sp - 1] > ram[sp] ? -1 : 0;
+                    break;
+                case LT:
+                    sp--;
+                    ram[sp - 1] = ram[sp - 1] < ram[sp] ? -1 : 0;
+                    break;
+                case AND:
+                    sp--;
+                    ram[sp - 1] &= ram[sp];
+                    break;
+                case OR:
+                    sp--;
+                    ram[sp - 1] |= ram[sp];
+                    break;
+                case NOT:
+                    ram[sp - 1] = ~ram[sp - 1];
+                    break;
+                case GOTO:
+                    pc = a;
+                    break;
+                case IF_GOTO:
+                    if (ram[--sp] != 0) {
+                        pc = a;
+                    }
+                    break;
+                case CALL: {
+                    int nArgs = code[i + 2];
+                    if (entries[a] < 0) {
+                        counts[a]++;
+                        sp = callNative(a, sp, nArgs);
+                        if (halted) {
+                            return 0;
+                        }
+                        break;
+                    }
+                    if (sp + 5 >= STACK_END) {
+                        throw new IllegalStateException("stack overflow in " + names.get(a));
+                    }
+                    ram[sp++] = pc;
+                    ram[sp++] = lcl;
+                    ram[sp++] = arg;
+                    ram[sp++] = ram[3];
+                    ram[sp++] = ram[4];
+                    arg = sp - nArgs - 5;
+                    lcl = sp;
+                    if (depth == callers.length) {
+                        callers = Arrays.copyOf(callers, depth * 2);
+                    }
+                    callers[depth++] = fn;
+                    fn = a;
+                    pc = entries[a];
+                    break;
+                }
+                case FUNCTION:
+                    if (sp + a >= STACK_END) {
+                        throw new IllegalStateException("stack overflow in " + names.get(fn));
+                    }
+                    for (int k = 0; k < a; k++) {
+                        ram[sp++] = 0;
+                    }
+                    break;
+                case RETURN: {
+                    int frame = lcl;
+                    int back = ram[frame - 5];
+                    ram[arg] = ram[sp - 1];
+                    sp = arg + 1;
+                    ram[4] = ram[frame - 1];
+                    ram[3] = ram[frame - 2];
+                    arg = ram[frame - 3];
+                    lcl = ram[frame - 4];
+                    if (back < 0) {
+                        return ram[sp - 1];
+                    }
+                    fn = callers[--depth];
+                    pc = back;
+                    break;
+                }
+            }
+        }
+    }
+
+    // SO minimo: argumentos em ram[sp - nArgs, sp); devolve o novo sp com o resultado empilhado
+    private int callNative(int id, int sp, int nArgs) {
+        int which = natives[id];
+        if (which < 0) {
+            throw new IllegalStateException("no function " + names.get(id));
+        }
+        int base = sp - nArgs;
+        int x = nArgs > 0 ? ram[base] : 0;
+        int y = nArgs > 1 ? ram[base + 1] : 0;
+        int z = nArgs > 2 ? ram[base + 2] : 0;
+        int result = 0;
+        switch (which) {
+            case MATH_MULTIPLY:
+                result = x * y;
+                break;
+            case MATH_DIVIDE:
+                if (y == 0) {
+                    throw new IllegalStateException("Sys.error 3: division by zero");
+                }
+                result = x / y;
+                break;
+            case MATH_MIN:
+                result = Math.min(x, y);
+                break;
+            case MATH_MAX:
+                result = Math.max(x, y);
+                break;
+            case MATH_ABS:
+                result = Math.abs(x);
+                break;
+            case MATH_SQRT:
+                result = (int) Math.sqrt(x);
+                break;
+            case MEMORY_ALLOC:
+            case ARRAY_NEW:
+                result = alloc(x);
+                break;
+            case MEMORY_PEEK:
+                result = ram[x];
+                break;
+            case MEMORY_POKE:
+                ram[x] = y;
+                break;
+            // strings: [tamanho, capacidade, caracteres...]
+            case STRING_NEW:
+                result = alloc(x + 2);
+                ram[result] = 0;
+                ram[result + 1] = x;
+                break;
+            case STRING_LENGTH:
+                result = ram[x];
+                break;
+            case STRING_CHAR_AT:
+                result = ram[x + 2 + y];
+                break;
+            case STRING_SET_CHAR_AT:
+                ram[x + 2 + y] = z;
+                break;
+            case STRING_APPEND_CHAR:
+                if (ram[x] == ram[x + 1]) {
+                    throw new IllegalStateException("Sys.error 17: string is full");
+                }
+                ram[x + 2 + ram[x]++] = y;
+                result = x;
+                break;
+            case STRING_ERASE_LAST_CHAR:
+                if (ram[x] > 0) {
+                    ram[x]--;
+                }
+                break;
+            case STRING_INT_VALUE:
+                result = intValue(x);
+                break;
+            case STRING_SET_INT: {
+                String digits = Integer.toString(y);
+                ram[x] = Math.min(digits.length(), ram[x + 1]);
+                for (int k = 0; k < ram[x]; k++) {
+                    ram[x + 2 + k] = digits.charAt(k);
+                }
+                break;
+            }
+            case STRING_NEW_LINE:
+                result = 128;
+                break;
+            case STRING_BACK_SPACE:
+                result = 129;
+                break;
+            case STRING_DOUBLE_QUOTE:
+                result = '"';
+                break;
+            case OUTPUT_PRINT_STRING:
+                for (int k = 0; k < ram[x]; k++) {
+                    printChar(ram[x + 2 + k]);
+                }
+                break;
+            case OUTPUT_PRINT_INT:
+                output.append(x);
+                break;
+            case OUTPUT_PRINT_CHAR:
+                printChar(x);
+                break;
+            case OUTPUT_PRINTLN:
+                output.append('\n');
+                break;
+            case SYS_HALT:
+                halted = true;
+                break;
+            case SYS_ERROR:
+                throw new IllegalStateException("Sys.error " + x);
+            default:
+                // liberar memoria, tela, teclado, cursor e espera nao tem efeito aqui
+        }
+        ram[base] = (short) result;
+        return base + 1;
+    }
+
+    private int alloc(int size) {
+        if (size < 0 || heap + size > HEAP_END) {
+            throw new IllegalStateException("Sys.error 6: heap overflow");
+        }
+        int block = heap;
+        Arrays.fill(ram, block, block + size, 0);
+        heap += size;
+        return block;
+    }
+
+    private int intValue(int s) {
+        int value = 0;
+        int k = 0;
+        boolean negative = ram[s] > 0 && ram[s + 2] == '-';
+        if (negative) {
+            k++;
+        }
+        for (; k < ram[s] && Character.isDigit(ram[s + 2 + k]); k++) {
+            value = value * 10 + ram[s + 2 + k] - '0';
+        }
+        return negative ? -value : value;
+    }
+
+    private void printChar(int c) {
+        if (c == 128) {
+            output.append('\n');
+        } else if (c == 129) {
+            if (output.length() > 0) {
+                output.setLength(output.length() - 1);
+            }
+        } else {
+            output.append((char) c);
+        }
+    }
+
+    // resolve os saltos pendentes e liga as chamadas sem codigo as funcoes nativas
+    private void link() {
+        if (linked) {
+            return;
+        }
+        for (int pc = 0; pc < size; pc++) {
+            int op = code[pc * STRIDE];
+            if (op == GOTO || op == IF_GOTO) {
+                String label = jumps.get(code[pc * STRIDE + 1]);
+                Integer target = labels.get(label);
+                if (target == null) {
+                    throw new IllegalStateException("no label " + label);
+                }
+                code[pc * STRIDE + 1] = target;
+            }
+        }
+        var nativeIds = new HashMap<String, Integer>();
+        for (int k = 0; k < NATIVES.length; k++) {
+            nativeIds.put(NATIVES[k], k);
+        }
+        natives = new int[names.size()];
+        for (int id = 0; id < names.size(); id++) {
+            natives[id] = nativeIds.getOrDefault(names.get(id), -1);
+        }
+        linked = true;
+    }
+
+    private int function(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            ids.put(name, id);
+            if (id == entries.length) {
+                entries = Arrays.copyOf(entries, id * 2);
+            }
+            entries[id] = -1;
+        }
+        return id;
+    }
+
+    private void add(int op, int a, int b) {
+        if (linked) {
+            throw new IllegalStateException("code loaded after run");
+        }
+        if ((size + 1) * STRIDE > code.length) {
+            code = Arrays.copyOf(code, code.length * 2);
+        }
+        code[size * STRIDE] = op;
+        code[size * STRIDE + 1] = a;
+        code[size * STRIDE + 2] = b;
+        size++;
+    }
+
+    private static Segment segment(String name) {
+        for (Segment segment : Segment.values()) {
+            if (segment.value.equals(name)) {
+                return segment;
+            }
+        }
+        throw new IllegalArgumentException("unknown segment " + name);
+    }
+
+    // decodifica as chamadas do Parser/CodeGenerator (ou do texto) direto para o int[]
+    private class Loader extends VMWriter {
+
+        @Override
+        void writePush(Segment segment, int index) {
+            switch (segment) {
+                case CONST:
+                    add(PUSH_CONST, index, 0);
+                    break;
+                case LOCAL:
+                    add(PUSH_LOCAL, index, 0);
+                    break;
+                case ARG:
+                    add(PUSH_ARG, index, 0);
+                    break;
+                case THIS:
+                    add(PUSH_THIS, index, 0);
+                    break;
+                case THAT:
+                    add(PUSH_THAT, index, 0);
+                    break;
+                default:
+                    add(PUSH_RAM, address(segment, index), 0);
+            }
+        }
+
+        @Override
+        void writePop(Segment segment, int index) {
+            switch (segment) {
+                case LOCAL:
+                    add(POP_LOCAL, index, 0);
+                    break;
+                case ARG:
+                    add(POP_ARG, index, 0);
+                    break;
+                case THIS:
+                    add(POP_THIS, index, 0);
+                    break;
+                case THAT:
+                    add(POP_THAT, index, 0);
+                    break;
+                case CONST:
+                    throw new IllegalArgumentException("pop constant");
+                default:
+                    add(POP_RAM, address(segment, index), 0);
+            }
+        }
+
+        // ADD..NOT seguem a ordem de Command
+        @Override
+        void writeArithmetic(Command command) {
+            add(ADD + command.ordinal(), 0, 0);
+        }
+
+        @Override
+        void writeLabel(String label) {
+            labels.put(function + "$" + label, size);
+        }
+
+        @Override
+        void writeGoto(String label) {
+            jumps.add(function + "$" + label);
+            add(GOTO, jumps.size() - 1, 0);
+        }
+
+        @Override
+        void writeIf(String label) {
+            jumps.add(function + "$" + label);
+            add(IF_GOTO, jumps.size() - 1, 0);
+        }
+
+        @Override
+        void writeCall(String name, int nArgs) {
+            add(CALL, function(name), nArgs);
+        }
+
+        @Override
+        void writeFunction(String name, int nLocals) {
+            function = name;
+            entries[function(name)] = size;
+            add(FUNCTION, nLocals, 0);
+        }
+
+        @Override
+        void writeReturn() {
+            add(RETURN, 0, 0);
+        }
+
+        // temp em 5..12, pointer em 3..4 e cada static, na ordem em que aparece, a partir de 16
+        private int address(Segment segment, int index) {
+            switch (segment) {
+                case TEMP:
+                    return 5 + index;
+                case POINTER:
+                    return 3 + index;
+                default:
+                    String name = function.substring(0, function.indexOf('.')) + "." + index;
+                    Integer address = statics.get(name);
+                    if (address == null) {
+                        if (nextStatic == STACK) {
+                            throw new IllegalStateException("too many statics: " + name);
+                        }
+                        address = nextStatic++;
+                        statics.put(name, address);
+                    }
+                    return address;
+            }
+        }
+    }
+
+}
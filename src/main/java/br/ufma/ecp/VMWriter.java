@@ -1,7 +1,41 @@
 package br.ufma.ecp;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
 public class VMWriter {
-    private StringBuilder vmOutput = new StringBuilder();
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private static final byte[] LABEL = bytes("label ");
+    private static final byte[] GOTO = bytes("goto ");
+    private static final byte[] IF_GOTO = bytes("if-goto ");
+    private static final byte[] CALL = bytes("call ");
+    private static final byte[] FUNCTION = bytes("function ");
+    private static final byte[] RETURN = bytes("return\n");
+
+    private WritableByteChannel channel; // modo streaming; null no modo em memoria (testes)
+    private ByteBuffer buffer;
+    private final byte[] digits = new byte[11];
+
+    // acumula em um buffer no heap que cresce conforme a necessidade
+    public VMWriter() {
+        buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    }
+
+    // escreve num buffer direto de tamanho fixo, descarregado no canal quando enche ou em flush()
+    public VMWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    public VMWriter(OutputStream output) {
+        this(Channels.newChannel(output));
+    }
 
     enum Segment {
         CONST("constant"),
@@ -15,9 +49,13 @@ public class VMWriter {
 
         private Segment(String value) {
             this.value = value;
+            this.push = bytes("push " + value + " ");
+            this.pop = bytes("pop " + value + " ");
         }
 
         public String value;
+        private final byte[] push;
+        private final byte[] pop;
     };
 
     enum Command {
@@ -29,48 +67,157 @@ public class VMWriter {
         LT,
         AND,
         OR,
-        NOT
+        NOT;
+
+        private final byte[] line = bytes(name().toLowerCase() + "\n");
     };
 
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
     public String vmOutput() {
-        return vmOutput.toString();
+        if (channel != null) {
+            throw new IllegalStateException("output is streamed to a channel");
+        }
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
+    }
+
+    // o que ja foi escrito no modo em memoria, sem copiar (o link do HackWriter)
+    ByteBuffer contents() {
+        if (channel != null) {
+            throw new IllegalStateException("output is streamed to a channel");
+        }
+        return buffer.duplicate().flip();
+    }
+
+    // envia ao canal tudo o que ja foi escrito; no modo em memoria nao faz nada
+    public void flush() {
+        if (channel == null) {
+            return;
+        }
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    // garante espaco para n bytes: descarrega no canal ou dobra o buffer em memoria
+    private void reserve(int n) {
+        if (buffer.remaining() >= n) {
+            return;
+        }
+        if (channel != null) {
+            flush();
+            if (buffer.remaining() >= n) {
+                return;
+            }
+        }
+        var larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + n));
+        buffer.flip();
+        larger.put(buffer);
+        buffer = larger;
+    }
+
+    // os put/newLine tambem servem aos backends que herdam o buffer (HackWriter)
+    void put(byte[] text) {
+        reserve(text.length);
+        buffer.put(text);
+    }
+
+    void putByte(int value) {
+        reserve(1);
+        buffer.put((byte) value);
+    }
+
+    // nomes de funcoes e rotulos sao ASCII: cada char vira um byte
+    void put(String text) {
+        reserve(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer.put((byte) text.charAt(i));
+        }
+    }
+
+    // escreve o inteiro em decimal sem passar por String
+    void put(int value) {
+        int pos = digits.length;
+        long v = value;
+        boolean negative = v < 0;
+        if (negative) v = -v;
+        do {
+            digits[--pos] = (byte) ('0' + v % 10);
+            v /= 10;
+        } while (v != 0);
+        if (negative) digits[--pos] = '-';
+
+        reserve(digits.length - pos);
+        buffer.put(digits, pos, digits.length - pos);
+    }
+
+    void newLine() {
+        reserve(1);
+        buffer.put((byte) '\n');
     }
 
     void writePush(Segment segment, int index) {
-        vmOutput.append(String.format("push %s %d\n", segment.value, index));
+        put(segment.push);
+        put(index);
+        newLine();
     }
 
     void writePop(Segment segment, int index) {
-
-        vmOutput.append(String.format("pop %s %d\n", segment.value, index));
+        put(segment.pop);
+        put(index);
+        newLine();
     }
 
     void writeArithmetic(Command command) {
-        vmOutput.append(String.format("%s\n", command.name().toLowerCase()));
+        put(command.line);
     }
 
     void writeLabel(String label) {
-        vmOutput.append(String.format("label %s\n", label));
+        put(LABEL);
+        put(label);
+        newLine();
     }
 
     void writeGoto(String label) {
-        vmOutput.append(String.format("goto %s\n", label));
+        put(GOTO);
+        put(label);
+        newLine();
     }
 
     void writeIf(String label) {
-        vmOutput.append(String.format("if-goto %s\n", label));
+        put(IF_GOTO);
+        put(label);
+        newLine();
     }
 
     void writeCall(String name, int nArgs) {
-        vmOutput.append(String.format("call %s %d\n", name, nArgs));
+        put(CALL);
+        put(name);
+        reserve(1);
+        buffer.put((byte) ' ');
+        put(nArgs);
+        newLine();
     }
 
     void writeFunction(String name, int nLocals) {
-        vmOutput.append(String.format("function %s %d\n", name, nLocals));
+        put(FUNCTION);
+        put(name);
+        reserve(1);
+        buffer.put((byte) ' ');
+        put(nLocals);
+        newLine();
     }
 
     void writeReturn() {
-        vmOutput.append(String.format("return\n"));
+        put(RETURN);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,177 @@
+package br.ufma.ecp.ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import br.ufma.ecp.token.TokenType;
+
+// Arvore sintatica guardada num unico int[]: cada no e um indice e ocupa STRIDE posicoes
+// (tipo, operador, valor, auxiliar, linha, primeiro filho, ultimo filho, proximo irmao).
+// Nomes e strings ficam numa tabela propria e os nos guardam so o indice.
+//
+//   CLASS        value = nome; filhos: CLASS_VAR* SUBROUTINE*
+//   CLASS_VAR    op = STATIC | FIELD; value = nome; aux = tipo
+//   SUBROUTINE   op = CONSTRUCTOR | FUNCTION | METHOD; value = nome; aux = tipo de retorno;
+//                filhos: PARAMETER* VAR* BLOCK
+//   PARAMETER    value = nome; aux = tipo
+//   VAR          value = nome; aux = tipo
+//   BLOCK        filhos: comandos
+//   LET          filhos: VARIABLE | ARRAY, expressao
+//   IF           filhos: condicao, BLOCK, BLOCK (else, opcional)
+//   WHILE        filhos: condicao, BLOCK
+//   DO           filho: CALL
+//   RETURN       filho: expressao (opcional)
+//   BINARY       op = operador; filhos: esquerda, direita
+//   UNARY        op = MINUS | NOT; filho: operando
+//   INT          value = valor (ja com sinal depois do ConstantFolder)
+//   STRING       value = texto
+//   KEYWORD      op = TRUE | FALSE | NULL | THIS
+//   VARIABLE     value = nome
+//   ARRAY        value = nome; filho: indice
+//   CALL         value = nome da subrotina; aux = classe ou variavel antes do '.', NONE sem '.';
+//                filhos: argumentos
+public class Ast {
+
+    public enum Kind {
+        CLASS, CLASS_VAR, SUBROUTINE, PARAMETER, VAR, BLOCK,
+        LET, IF, WHILE, DO, RETURN,
+        BINARY, UNARY, INT, STRING, KEYWORD, VARIABLE, ARRAY, CALL
+    }
+
+    public static final int NONE = -1;
+
+    private static final Kind[] kinds = Kind.values();
+    private static final TokenType[] types = TokenType.values();
+
+    private static final int STRIDE = 8;
+    private static final int KIND = 0, OP = 1, VALUE = 2, AUX = 3, LINE = 4, FIRST = 5, LAST = 6, NEXT = 7;
+
+    private int[] data;
+    private int size;
+
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> nameIndex = new HashMap<>();
+
+    public Ast () {
+        this(256);
+    }
+
+    // a capacidade inicial evita copias quando se sabe o numero de tokens
+    public Ast (int capacity) {
+        data = new int[STRIDE * Math.max(capacity, 16)];
+    }
+
+    public int add (Kind kind, TokenType op, int value, int aux, int line) {
+        int i = size * STRIDE;
+        if (i == data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        data[i + KIND] = kind.ordinal();
+        data[i + OP] = op == null ? NONE : op.ordinal();
+        data[i + VALUE] = value;
+        data[i + AUX] = aux;
+        data[i + LINE] = line;
+        data[i + FIRST] = NONE;
+        data[i + LAST] = NONE;
+        data[i + NEXT] = NONE;
+        return size++;
+    }
+
+    public void addChild (int parent, int child) {
+        int last = data[parent * STRIDE + LAST];
+        if (last == NONE) {
+            data[parent * STRIDE + FIRST] = child;
+        } else {
+            data[last * STRIDE + NEXT] = child;
+        }
+        data[parent * STRIDE + LAST] = child;
+    }
+
+    // o mesmo nome sempre recebe o mesmo indice
+    public int name (String name) {
+        Integer index = nameIndex.get(name);
+        if (index == null) {
+            index = names.size();
+            names.add(name);
+            nameIndex.put(name, index);
+        }
+        return index;
+    }
+
+    public int size () {
+        return size;
+    }
+
+    public Kind kind (int node) {
+        return kinds[data[node * STRIDE + KIND]];
+    }
+
+    public boolean is (int node, Kind kind) {
+        return node != NONE && data[node * STRIDE + KIND] == kind.ordinal();
+    }
+
+    public TokenType op (int node) {
+        int op = data[node * STRIDE + OP];
+        return op == NONE ? null : types[op];
+    }
+
+    public int value (int node) {
+        return data[node * STRIDE + VALUE];
+    }
+
+    public String name (int node) {
+        return names.get(value(node));
+    }
+
+    public int aux (int node) {
+        return data[node * STRIDE + AUX];
+    }
+
+    public String auxName (int node) {
+        int aux = aux(node);
+        return aux == NONE ? null : names.get(aux);
+    }
+
+    public int line (int node) {
+        return data[node * STRIDE + LINE];
+    }
+
+    public int first (int node) {
+        return data[node * STRIDE + FIRST];
+    }
+
+    public int next (int node) {
+        return data[node * STRIDE + NEXT];
+    }
+
+    public int child (int node, int index) {
+        int child = first(node);
+        for (int i = 0; i < index && child != NONE; i++) {
+            child = next(child);
+        }
+        return child;
+    }
+
+    public int childCount (int node) {
+        int count = 0;
+        for (int child = first(node); child != NONE; child = next(child)) {
+            count++;
+        }
+        return count;
+    }
+
+    // usado pelas passagens de otimizacao: o no vira uma constante e perde os filhos
+    public void replaceWithInt (int node, int value) {
+        int i = node * STRIDE;
+        data[i + KIND] = Kind.INT.ordinal();
+        data[i + OP] = NONE;
+        data[i + VALUE] = value;
+        data[i + AUX] = NONE;
+        data[i + FIRST] = NONE;
+        data[i + LAST] = NONE;
+    }
+
+}
@@ -0,0 +1,306 @@
+package br.ufma.ecp.ast;
+
+import br.ufma.ecp.ast.Ast.Kind;
+import br.ufma.ecp.token.Token;
+import br.ufma.ecp.token.TokenBuffer;
+import br.ufma.ecp.token.TokenType;
+
+// Constroi a Ast a partir dos tokens de Scanner.tokenize(). Nao gera codigo nem resolve nomes:
+// isso fica para o CodeGenerator, depois das passagens de otimizacao sobre a arvore.
+// Le os tokens pelo indice, sem criar objetos Token; so nomes, strings e numeros viram String.
+public class AstParser {
+
+    private final TokenBuffer tokens;
+    private final Ast ast;
+    private int pos; // indice do proximo token (o "peek" do Parser)
+
+    public AstParser (TokenBuffer tokens) {
+        this.tokens = tokens;
+        this.ast = new Ast(tokens.size() * 2 / 3); // em geral ha menos de um no para cada dois tokens
+    }
+
+    public Ast ast () {
+        return ast;
+    }
+
+    // 'class' className '{' classVarDec* subroutineDec* '}'
+    public int parseClass () {
+        expect(TokenType.CLASS);
+        int node = ast.add(Kind.CLASS, null, expectName(), Ast.NONE, line());
+        expect(TokenType.LBRACE);
+
+        while (peekIs(TokenType.STATIC) || peekIs(TokenType.FIELD)) {
+            parseClassVarDec(node);
+        }
+        while (peekIs(TokenType.CONSTRUCTOR) || peekIs(TokenType.FUNCTION) || peekIs(TokenType.METHOD)) {
+            ast.addChild(node, parseSubroutineDec());
+        }
+
+        expect(TokenType.RBRACE);
+        return node;
+    }
+
+    // ( 'static' | 'field' ) type varName ( ',' varName)* ';'
+    void parseClassVarDec (int parent) {
+        TokenType kind = expect(TokenType.STATIC, TokenType.FIELD);
+        int type = expectType();
+        do {
+            ast.addChild(parent, ast.add(Kind.CLASS_VAR, kind, expectName(), type, line()));
+        } while (accept(TokenType.COMMA));
+        expect(TokenType.SEMICOLON);
+    }
+
+    // ( 'constructor' | 'function' | 'method' ) ( 'void' | type) subroutineName
+    // '(' parameterList ')' '{' varDec* statements '}'
+    int parseSubroutineDec () {
+        TokenType kind = expect(TokenType.CONSTRUCTOR, TokenType.FUNCTION, TokenType.METHOD);
+        int returnType = peekIs(TokenType.VOID) ? ast.name(tokens.lexeme(pos++)) : expectType();
+        int node = ast.add(Kind.SUBROUTINE, kind, expectName(), returnType, line());
+
+        expect(TokenType.LPAREN);
+        if (!peekIs(TokenType.RPAREN)) {
+            do {
+                int type = expectType();
+                ast.addChild(node, ast.add(Kind.PARAMETER, null, expectName(), type, line()));
+            } while (accept(TokenType.COMMA));
+        }
+        expect(TokenType.RPAREN);
+
+        expect(TokenType.LBRACE);
+        while (accept(TokenType.VAR)) {
+            int type = expectType();
+            do {
+                ast.addChild(node, ast.add(Kind.VAR, null, expectName(), type, line()));
+            } while (accept(TokenType.COMMA));
+            expect(TokenType.SEMICOLON);
+        }
+        ast.addChild(node, parseStatements());
+        expect(TokenType.RBRACE);
+        return node;
+    }
+
+    // statement*
+    int parseStatements () {
+        int block = ast.add(Kind.BLOCK, null, 0, Ast.NONE, tokens.line(pos));
+        while (true) {
+            switch (peek()) {
+                case LET: ast.addChild(block, parseLet()); break;
+                case IF: ast.addChild(block, parseIf()); break;
+                case WHILE: ast.addChild(block, parseWhile()); break;
+                case DO: ast.addChild(block, parseDo()); break;
+                case RETURN: ast.addChild(block, parseReturn()); break;
+                default: return block;
+            }
+        }
+    }
+
+    // 'let' varName ( '[' expression ']' )? '=' expression ';'
+    int parseLet () {
+        expect(TokenType.LET);
+        int node = ast.add(Kind.LET, null, 0, Ast.NONE, line());
+        int name = expectName();
+        if (accept(TokenType.LBRACKET)) {
+            int target = ast.add(Kind.ARRAY, null, name, Ast.NONE, line());
+            ast.addChild(target, parseExpression());
+            expect(TokenType.RBRACKET);
+            ast.addChild(node, target);
+        } else {
+            ast.addChild(node, ast.add(Kind.VARIABLE, null, name, Ast.NONE, line()));
+        }
+        expect(TokenType.EQ);
+        ast.addChild(node, parseExpression());
+        expect(TokenType.SEMICOLON);
+        return node;
+    }
+
+    // 'if' '(' expression ')' '{' statements '}' ( 'else' '{' statements '}' )?
+    int parseIf () {
+        expect(TokenType.IF);
+        int node = ast.add(Kind.IF, null, 0, Ast.NONE, line());
+        expect(TokenType.LPAREN);
+        ast.addChild(node, parseExpression());
+        expect(TokenType.RPAREN);
+        ast.addChild(node, parseBlock());
+        if (accept(TokenType.ELSE)) {
+            ast.addChild(node, parseBlock());
+        }
+        return node;
+    }
+
+    // 'while' '(' expression ')' '{' statements '}'
+    int parseWhile () {
+        expect(TokenType.WHILE);
+        int node = ast.add(Kind.WHILE, null, 0, Ast.NONE, line());
+        expect(TokenType.LPAREN);
+        ast.addChild(node, parseExpression());
+        expect(TokenType.RPAREN);
+        ast.addChild(node, parseBlock());
+        return node;
+    }
+
+    private int parseBlock () {
+        expect(TokenType.LBRACE);
+        int block = parseStatements();
+        expect(TokenType.RBRACE);
+        return block;
+    }
+
+    // 'do' subroutineCall ';'
+    int parseDo () {
+        expect(TokenType.DO);
+        int node = ast.add(Kind.DO, null, 0, Ast.NONE, line());
+        int name = expectName();
+        ast.addChild(node, parseSubroutineCall(name));
+        expect(TokenType.SEMICOLON);
+        return node;
+    }
+
+    // 'return' expression? ';'
+    int parseReturn () {
+        expect(TokenType.RETURN);
+        int node = ast.add(Kind.RETURN, null, 0, Ast.NONE, line());
+        if (!peekIs(TokenType.SEMICOLON)) {
+            ast.addChild(node, parseExpression());
+        }
+        expect(TokenType.SEMICOLON);
+        return node;
+    }
+
+    // expression -> term (op term)*, sem precedencia: associa a esquerda como o Parser
+    public int parseExpression () {
+        int left = parseTerm();
+        while (isOperator(peek())) {
+            TokenType op = peek();
+            pos++;
+            int node = ast.add(Kind.BINARY, op, 0, Ast.NONE, line());
+            ast.addChild(node, left);
+            ast.addChild(node, parseTerm());
+            left = node;
+        }
+        return left;
+    }
+
+    // integerConstant | stringConstant | keywordConstant | varName | varName '[' expression ']'
+    // | subroutineCall | '(' expression ')' | unaryOp term
+    int parseTerm () {
+        switch (peek()) {
+            case NUMBER: {
+                pos++;
+                int value = Token.intValue(tokens.lexeme(pos - 1));
+                if (value < 0) {
+                    throw new Error("integer constant " + tokens.lexeme(pos - 1) + " out of range at line " + line());
+                }
+                return ast.add(Kind.INT, null, value, Ast.NONE, line());
+            }
+            case STRING:
+                pos++;
+                return ast.add(Kind.STRING, null, ast.name(tokens.lexeme(pos - 1)), Ast.NONE, line());
+            case TRUE:
+            case FALSE:
+            case NULL:
+            case THIS:
+                pos++;
+                return ast.add(Kind.KEYWORD, tokens.type(pos - 1), 0, Ast.NONE, line());
+            case IDENT: {
+                int name = expectName();
+                if (peekIs(TokenType.LPAREN) || peekIs(TokenType.DOT)) {
+                    return parseSubroutineCall(name);
+                }
+                if (accept(TokenType.LBRACKET)) {
+                    int node = ast.add(Kind.ARRAY, null, name, Ast.NONE, line());
+                    ast.addChild(node, parseExpression());
+                    expect(TokenType.RBRACKET);
+                    return node;
+                }
+                return ast.add(Kind.VARIABLE, null, name, Ast.NONE, line());
+            }
+            case LPAREN: {
+                pos++;
+                int node = parseExpression();
+                expect(TokenType.RPAREN);
+                return node;
+            }
+            case MINUS:
+            case NOT: {
+                TokenType op = tokens.type(pos++);
+                int node = ast.add(Kind.UNARY, op, 0, Ast.NONE, line());
+                ast.addChild(node, parseTerm());
+                return node;
+            }
+            default:
+                throw error();
+        }
+    }
+
+    // subroutineName '(' expressionList ')' | (className|varName) '.' subroutineName '(' expressionList ')'
+    // o primeiro nome ja foi consumido
+    private int parseSubroutineCall (int name) {
+        int node;
+        if (accept(TokenType.DOT)) {
+            node = ast.add(Kind.CALL, null, expectName(), name, line());
+        } else {
+            node = ast.add(Kind.CALL, null, name, Ast.NONE, line());
+        }
+        expect(TokenType.LPAREN);
+        if (!peekIs(TokenType.RPAREN)) {
+            do {
+                ast.addChild(node, parseExpression());
+            } while (accept(TokenType.COMMA));
+        }
+        expect(TokenType.RPAREN);
+        return node;
+    }
+
+    private static boolean isOperator (TokenType type) {
+        return type.ordinal() >= TokenType.PLUS.ordinal() && type.ordinal() <= TokenType.EQ.ordinal()
+                && type != TokenType.NOT;
+    }
+
+    // 'int' | 'char' | 'boolean' | className
+    private int expectType () {
+        expect(TokenType.INT, TokenType.CHAR, TokenType.BOOLEAN, TokenType.IDENT);
+        return ast.name(tokens.lexeme(pos - 1));
+    }
+
+    private int expectName () {
+        expect(TokenType.IDENT);
+        return ast.name(tokens.lexeme(pos - 1));
+    }
+
+    private TokenType peek () {
+        return tokens.type(Math.min(pos, tokens.size() - 1));
+    }
+
+    private boolean peekIs (TokenType type) {
+        return peek() == type;
+    }
+
+    // linha do ultimo token consumido
+    private int line () {
+        return tokens.line(Math.max(pos - 1, 0));
+    }
+
+    private boolean accept (TokenType type) {
+        if (peekIs(type)) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private TokenType expect (TokenType... types) {
+        TokenType type = peek();
+        for (TokenType expected : types) {
+            if (type == expected) {
+                pos++;
+                return type;
+            }
+        }
+        throw error();
+    }
+
+    private Error error () {
+        return new Error("Syntax error at line " + tokens.line(Math.min(pos, tokens.size() - 1)));
+    }
+
+}
@@ -0,0 +1,56 @@
+package br.ufma.ecp.ast;
+
+import br.ufma.ecp.ast.Ast.Kind;
+import br.ufma.ecp.token.TokenType;
+
+// Passagem sobre a Ast: operacoes entre constantes viram um no INT com o resultado.
+public class ConstantFolder {
+
+    // resultados sao sempre de 16 bits, entao este valor nunca e um resultado valido
+    public static final int NOT_FOLDED = Integer.MIN_VALUE;
+
+    private ConstantFolder () {
+    }
+
+    public static void fold (Ast ast, int node) {
+        for (int child = ast.first(node); child != Ast.NONE; child = ast.next(child)) {
+            fold(ast, child);
+        }
+
+        if (ast.is(node, Kind.BINARY)) {
+            int left = ast.first(node);
+            int right = ast.next(left);
+            if (ast.is(left, Kind.INT) && ast.is(right, Kind.INT)) {
+                int result = apply(ast.op(node), ast.value(left), ast.value(right));
+                if (result != NOT_FOLDED) {
+                    ast.replaceWithInt(node, result);
+                }
+            }
+        } else if (ast.is(node, Kind.UNARY) && ast.is(ast.first(node), Kind.INT)) {
+            int value = ast.value(ast.first(node));
+            ast.replaceWithInt(node, (short) (ast.op(node) == TokenType.MINUS ? -value : ~value));
+        }
+    }
+
+    // aritmetica de 16 bits do Hack; divisao por zero fica para o Math.divide em tempo de execucao
+    public static int apply (TokenType op, int a, int b) {
+        int result;
+        switch (op) {
+            case PLUS: result = a + b; break;
+            case MINUS: result = a - b; break;
+            case ASTERISK: result = a * b; break;
+            case SLASH:
+                if (b == 0) return NOT_FOLDED;
+                result = a / b;
+                break;
+            case AND: result = a & b; break;
+            case OR: result = a | b; break;
+            case LT: result = a < b ? -1 : 0; break;
+            case GT: result = a > b ? -1 : 0; break;
+            case EQ: result = a == b ? -1 : 0; break;
+            default: return NOT_FOLDED;
+        }
+        return (short) result;
+    }
+
+}
@@ -0,0 +1,87 @@
+package br.ufma.ecp.token;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Identificadores canonicos de uma compilacao: cada nome distinto vira uma unica String, e as
+// outras ocorrencias a reaproveitam sem alocar. Comparar nomes passa a ser comparar referencias,
+// e o hashCode de cada nome e calculado uma vez so.
+// Tabela de enderecamento aberto sobre os bytes do fonte; nao e thread-safe (uma por Scanner).
+public class NamePool {
+
+    private String[] names = new String[256];
+    private byte[][] bytes = new byte[256][];
+    private int[] hashes = new int[256];
+    private int size;
+
+    public String intern (ByteBuffer input, int offset, int length) {
+        int hash = hash(input, offset, length);
+        int mask = names.length - 1;
+        int i = hash & mask;
+        while (names[i] != null) {
+            if (hashes[i] == hash && equals(bytes[i], input, offset, length)) {
+                return names[i];
+            }
+            i = (i + 1) & mask;
+        }
+
+        byte[] name = new byte[length];
+        input.get(offset, name);
+        String canonical = new String(name, StandardCharsets.UTF_8);
+        names[i] = canonical;
+        bytes[i] = name;
+        hashes[i] = hash;
+        if (2 * ++size > names.length) {
+            grow();
+        }
+        return canonical;
+    }
+
+    public int size () {
+        return size;
+    }
+
+    private static int hash (ByteBuffer input, int offset, int length) {
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + input.get(offset + i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equals (byte[] name, ByteBuffer input, int offset, int length) {
+        if (name.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name[i] != input.get(offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void grow () {
+        String[] oldNames = names;
+        byte[][] oldBytes = bytes;
+        int[] oldHashes = hashes;
+        names = new String[oldNames.length * 2];
+        bytes = new byte[oldNames.length * 2][];
+        hashes = new int[oldNames.length * 2];
+
+        int mask = names.length - 1;
+        for (int j = 0; j < oldNames.length; j++) {
+            if (oldNames[j] == null) {
+                continue;
+            }
+            int i = oldHashes[j] & mask;
+            while (names[i] != null) {
+                i = (i + 1) & mask;
+            }
+            names[i] = oldNames[j];
+            bytes[i] = oldBytes[j];
+            hashes[i] = oldHashes[j];
+        }
+    }
+
+}
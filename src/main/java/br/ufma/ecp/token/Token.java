@@ -12,38 +12,55 @@ public class Token {
     }
 
 public String toString() {
-        String categoria = type.toString().toLowerCase();
-
+        String categoria;
         String valor = lexeme;
-        if (TokenType.isSymbol(lexeme.charAt(0))) {
-            categoria = "symbol";
-            //Os símbolos <, >, ", e & são impressos como &lt;  &gt;  &quot; e &amp; Para não conflitar com o significado destes símbolos no XML
-            if (valor == ">") {
-                valor = "&gt;" ;
-            } else if (valor == "<") {
-                valor = "&lt;" ;
-            } else if (valor == "\"") {
-                valor = "&quot;" ;
-            } else if (valor == "&") {
-                valor = "&amp;" ;
-            }
 
-        } else if (categoria.equals("number")) {
-            categoria = "integerConstant";
-        } else if (categoria.equals("ident")) {
-            categoria = "identifier";
-        } else if (categoria.equals("string")) {
-            categoria = "stringConstant";
-        } else {
-          categoria = "keyword";
+        switch (type) {
+            case NUMBER:
+                categoria = "integerConstant";
+                break;
+            case IDENT:
+                categoria = "identifier";
+                break;
+            case STRING:
+                categoria = "stringConstant";
+                break;
+            //Os símbolos <, >, ", e & são impressos como &lt;  &gt;  &quot; e &amp; Para não conflitar com o significado destes símbolos no XML
+            case LT:
+                categoria = "symbol";
+                valor = "&lt;";
+                break;
+            case GT:
+                categoria = "symbol";
+                valor = "&gt;";
+                break;
+            case AND:
+                categoria = "symbol";
+                valor = "&amp;";
+                break;
+            default:
+                categoria = type.ordinal() <= TokenType.EQ.ordinal() ? "symbol" : "keyword";
         }
         return "<" + categoria + "> " + valor  + " </" + categoria + ">";
-  
-
     }
 
 public String value() {
     return null;
 }
+
+    public static final int MAX_INT = 32767;
+
+    // valor de um integerConstant (so digitos); -1 quando passa de MAX_INT, que e o maior que
+    // cabe num push constant
+    public static int intValue(String lexeme) {
+        int value = 0;
+        for (int i = 0; i < lexeme.length(); i++) {
+            value = value * 10 + (lexeme.charAt(i) - '0');
+            if (value > MAX_INT) {
+                return -1;
+            }
+        }
+        return value;
+    }
     
 }
@@ -0,0 +1,90 @@
+package br.ufma.ecp.token;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Tokens guardados como (tipo, inicio, tamanho, linha) num int[] sobre o buffer original.
+// O texto so vira String quando alguem pede o lexema.
+public class TokenBuffer {
+
+    private static final TokenType[] types = TokenType.values();
+    private static final int STRIDE = 4;
+
+    private final ByteBuffer input;
+    private final NamePool names;
+    private int[] data = new int[STRIDE * 256];
+    private int size;
+
+    public TokenBuffer (ByteBuffer input) {
+        this(input, new NamePool());
+    }
+
+    public TokenBuffer (ByteBuffer input, NamePool names) {
+        this.input = input;
+        this.names = names;
+    }
+
+    public void add (TokenType type, int offset, int length, int line) {
+        int i = size * STRIDE;
+        if (i == data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        data[i] = type.ordinal();
+        data[i + 1] = offset;
+        data[i + 2] = length;
+        data[i + 3] = line;
+        size++;
+    }
+
+    public int size () {
+        return size;
+    }
+
+    public TokenType type (int index) {
+        return types[data[index * STRIDE]];
+    }
+
+    public int offset (int index) {
+        return data[index * STRIDE + 1];
+    }
+
+    public int length (int index) {
+        return data[index * STRIDE + 2];
+    }
+
+    public int line (int index) {
+        return data[index * STRIDE + 3];
+    }
+
+    public String lexeme (int index) {
+        TokenType type = type(index);
+        String fixed = TokenType.lexeme(type);
+        if (fixed != null) {
+            return fixed;
+        }
+        if (type == TokenType.IDENT) {
+            return names.intern(input, offset(index), length(index));
+        }
+        return decode(input, offset(index), length(index));
+    }
+
+    // decodifica o trecho sem mexer na posicao do buffer; buffers mapeados sao copiados so no trecho
+    public static String decode (ByteBuffer input, int offset, int length) {
+        if (input.hasArray()) {
+            return new String(input.array(), input.arrayOffset() + offset, length, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        input.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // depois do ultimo token devolve sempre o EOF
+    public Token token (int index) {
+        if (index >= size) {
+            index = size - 1;
+        }
+        return new Token(type(index), lexeme(index), line(index));
+    }
+
+}
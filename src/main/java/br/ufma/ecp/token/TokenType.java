@@ -36,6 +36,30 @@ public enum TokenType {
 
      ILLEGAL, AST;
 
+     private static final String[] lexemes = {
+        "(", ")", "{", "}", "[", "]",
+        ",", ";", ".",
+        "+", "-", "*", "/",
+        "&", "|", "~",
+        "<", ">", "="
+     };
+
+     // lexema fixo de simbolos e palavras-chave; null para numeros, strings e identificadores
+     static public String lexeme (TokenType type) {
+        if (type.ordinal() < lexemes.length) {
+            return lexemes[type.ordinal()];
+        }
+        if (type.ordinal() >= WHILE.ordinal() && type.ordinal() <= RETURN.ordinal()) {
+            return type.keyword;
+        }
+        if (type == EOF) {
+            return "EOF";
+        }
+        return null;
+     }
+
+     private final String keyword = name().toLowerCase();
+
      static public boolean isSymbol (char c) {
         String symbols = "{}()[].,;+-*/&|<>=~";
         return symbols.indexOf(c) > -1;
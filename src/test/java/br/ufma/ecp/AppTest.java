@@ -0,0 +1,112 @@
+package br.ufma.ecp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AppTest extends TestSupport {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    static final String MAIN = """
+        class Main {
+            function int fib(int n) {
+                if (n < 2) {
+                    return n;
+                }
+                return Main.fib(n - 1) + Main.fib(n - 2);
+            }
+
+            function void main() {
+                var Array a;
+                var Counter c;
+                let a = Array.new(2);
+                let a[1] = Main.fib(10);
+                let c = Counter.new();
+                do c.add(a[1]);
+                do c.add(3);
+                do Output.printInt(c.get());
+                return;
+            }
+        }
+        """;
+
+    static final String COUNTER = """
+        class Counter {
+            field int n;
+            constructor Counter new() { let n = 0; return this; }
+            method void add(int k) { let n = n + k; return; }
+            method int get() { return n; }
+            function void unused() { return; }
+        }
+        """;
+
+    private Path project() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        Files.writeString(dir.resolve("Main.jack"), MAIN);
+        Files.writeString(dir.resolve("Counter.jack"), COUNTER);
+        return dir;
+    }
+
+    private String run(int expectedStatus, String... args) throws IOException {
+        var out = new ByteArrayOutputStream();
+        int status = App.run(List.of(args), new PrintStream(out, true, StandardCharsets.UTF_8));
+        assertEquals(expectedStatus, status);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    // o Parser de uma passada (sem -ast) gera o mesmo programa que o CodeGenerator
+    @Test
+    public void runTest() throws IOException {
+        Path dir = project();
+        for (String[] flags : List.of(new String[] { "-run" }, new String[] { "-ast", "-run" },
+                new String[] { "-O", "-run" }, new String[] { "-ast", "-O", "-run" })) {
+            var args = Arrays.copyOf(flags, flags.length + 1);
+            args[flags.length] = dir.toString();
+            var output = run(0, args);
+            assertTrue(output, output.contains("\n58\n"));
+            assertTrue(output, output.contains(" Main.fib\n"));
+        }
+    }
+
+    // o pool de strings muda o sentido do programa: -O nao o liga, so -Ostrings
+    @Test
+    public void stringPoolFlagTest() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        Files.writeString(dir.resolve("Main.jack"), """
+            class Main {
+                function void main() {
+                    do Output.printString("ok");
+                    return;
+                }
+            }
+            """);
+        run(0, "-O", dir.toString());
+        assertFalse(Files.readString(dir.resolve("Main.vm")).contains("label STRING0"));
+        run(0, "-O", "-Ostrings", dir.toString());
+        assertTrue(Files.readString(dir.resolve("Main.vm")).contains("label STRING0"));
+    }
+
+    @Test
+    public void missingEntryTest() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        Files.writeString(dir.resolve("Counter.jack"), COUNTER);
+        var output = run(1, "-run", dir.toString());
+        assertTrue(output, output.endsWith("run: no function Main.main\n"));
+    }
+
+}
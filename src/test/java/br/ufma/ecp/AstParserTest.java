@@ -0,0 +1,91 @@
+package br.ufma.ecp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import br.ufma.ecp.ast.Ast;
+import br.ufma.ecp.ast.Ast.Kind;
+import br.ufma.ecp.ast.AstParser;
+import br.ufma.ecp.ast.ConstantFolder;
+import br.ufma.ecp.token.TokenType;
+
+public class AstParserTest {
+
+    private AstParser parser(String input) {
+        return new AstParser(new Scanner(input.getBytes(StandardCharsets.UTF_8)).tokenize());
+    }
+
+    @Test
+    public void expressionTest() {
+        var parser = parser("a[1] + Math.max(b, -2) * 3");
+        int root = parser.parseExpression();
+        Ast ast = parser.ast();
+
+        // sem precedencia: (a[1] + Math.max(b, -2)) * 3
+        assertEquals(Kind.BINARY, ast.kind(root));
+        assertEquals(TokenType.ASTERISK, ast.op(root));
+        int sum = ast.first(root);
+        assertEquals(TokenType.PLUS, ast.op(sum));
+        assertEquals(Kind.ARRAY, ast.kind(ast.first(sum)));
+        assertEquals("a", ast.name(ast.first(sum)));
+
+        int call = ast.child(sum, 1);
+        assertEquals(Kind.CALL, ast.kind(call));
+        assertEquals("max", ast.name(call));
+        assertEquals("Math", ast.auxName(call));
+        assertEquals(2, ast.childCount(call));
+        assertEquals(Kind.UNARY, ast.kind(ast.child(call, 1)));
+
+        assertEquals(Kind.INT, ast.kind(ast.child(root, 1)));
+        assertEquals(3, ast.value(ast.child(root, 1)));
+    }
+
+    @Test
+    public void classTest() {
+        var parser = parser("""
+            class Main {
+                static int a, b;
+                function void main() {
+                    var int i;
+                    if (true) { return; } else { let i = 1; }
+                }
+            }
+            """);
+        int root = parser.parseClass();
+        Ast ast = parser.ast();
+
+        assertEquals("Main", ast.name(root));
+        assertEquals(3, ast.childCount(root));
+        assertEquals(Kind.CLASS_VAR, ast.kind(ast.child(root, 1)));
+        assertEquals("b", ast.name(ast.child(root, 1)));
+        assertEquals("int", ast.auxName(ast.child(root, 1)));
+
+        int main = ast.child(root, 2);
+        assertEquals(TokenType.FUNCTION, ast.op(main));
+        assertEquals("void", ast.auxName(main));
+        assertEquals(Kind.VAR, ast.kind(ast.first(main)));
+        int body = ast.child(main, 1);
+        assertEquals(Kind.BLOCK, ast.kind(body));
+        int ifNode = ast.first(body);
+        assertEquals(Kind.IF, ast.kind(ifNode));
+        assertEquals(3, ast.childCount(ifNode));
+        assertEquals(5, ast.line(ast.child(ifNode, 1)));
+    }
+
+    @Test
+    public void constantFolderTest() {
+        var parser = parser("(2 + 3) * -(4) + x");
+        int root = parser.parseExpression();
+        Ast ast = parser.ast();
+        ConstantFolder.fold(ast, root);
+
+        int left = ast.first(root);
+        assertEquals(Kind.INT, ast.kind(left));
+        assertEquals(-20, ast.value(left));
+        assertEquals(Kind.VARIABLE, ast.kind(ast.child(root, 1)));
+    }
+
+}
@@ -0,0 +1,118 @@
+package br.ufma.ecp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import br.ufma.ecp.ast.AstParser;
+
+public class BinaryVMTest extends TestSupport {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void generate(String source, VMWriter vmWriter) {
+        var parser = new AstParser(new Scanner(source.getBytes(StandardCharsets.UTF_8)).tokenize());
+        int root = parser.parseClass();
+        new CodeGenerator(parser.ast(), vmWriter).generate(root);
+    }
+
+    @Test
+    public void roundTripTest() throws IOException {
+        for (String name : List.of("Square/Square.jack", "Square/SquareGame.jack", "Square/Main.jack")) {
+            var source = fromFile(name);
+            var text = new VMWriter();
+            generate(source, text);
+            var binary = new BinaryVMWriter();
+            generate(source, binary);
+
+            ByteBuffer bytes = binary.contents();
+            var decoded = new VMWriter();
+            BinaryVMReader.read(bytes, decoded);
+            assertEquals(text.vmOutput(), decoded.vmOutput());
+            assertTrue(bytes.remaining() * 3 < text.vmOutput().length());
+        }
+    }
+
+    @Test
+    public void formatTest() {
+        var writer = new BinaryVMWriter();
+        writer.writeFunction("Main.f", 2);
+        writer.writePush(VMWriter.Segment.CONST, 300);
+        writer.writeCall("Main.f", 1);
+        writer.writeArithmetic(VMWriter.Command.NOT);
+
+        var bytes = writer.contents();
+        var expected = new byte[] {
+            'J', 'V', 'M', 'B', 1,
+            (byte) 0x70, 0, 6, 'M', 'a', 'i', 'n', '.', 'f', 2, // function, nome novo 0, 2 locais
+            (byte) 0x00, (byte) 0xAC, 0x02,                    // push constant 300
+            (byte) 0x60, 0, 1,                                 // call, nome 0, 1 argumento
+            (byte) 0x28                                        // not
+        };
+        assertEquals(ByteBuffer.wrap(expected), bytes);
+    }
+
+    @Test
+    public void corruptTest() {
+        assertFalse(BinaryVMReader.isBinary(ByteBuffer.wrap("push constant 1\n".getBytes(StandardCharsets.US_ASCII))));
+        expectInvalid(new byte[] { 'J', 'V', 'M', 'B', 1, 0x00 }, "truncated binary VM file");
+        expectInvalid(new byte[] { 'J', 'V', 'M', 'B', 1, (byte) 0xF0 }, "corrupt binary VM file at byte 5");
+        expectInvalid(new byte[] { 'J', 'V', 'M', 'B', 1, (byte) 0x50, 3 }, "invalid name reference 3 at byte 5"); // goto, nome 3 sem tabela
+        expectInvalid(new byte[] { 'J', 'V', 'M', 'B', 1, (byte) 0x50, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F },
+                "invalid name reference -1 at byte 5");
+        expectInvalid(new byte[] { 'J', 'V', 'M', 'B', 1, (byte) 0x50, 0, 6, 'M', 'a' }, "truncated binary VM file"); // nome cortado
+        expectInvalid(new byte[] { 'J', 'V', 'M', 'B', 2 }, "unsupported binary VM version 2");
+    }
+
+    private void expectInvalid(byte[] bytes, String message) {
+        try {
+            BinaryVMReader.read(ByteBuffer.wrap(bytes), new VMWriter());
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    @Test
+    public void compilerTest() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        Files.writeString(dir.resolve("Main.jack"), """
+            class Main {
+                function void main() {
+                    var int i;
+                    while (i < 5) {
+                        do Output.printInt(i * i);
+                        let i = i + 1;
+                    }
+                    return;
+                }
+            }
+            """);
+
+        var compiler = new JackCompiler(1, EnumSet.noneOf(Optimization.class), true);
+        compiler.emitBinary(true);
+        var results = compiler.compile(List.of(dir));
+        compiler.shutdown();
+        assertEquals(dir.resolve("Main.vmb"), results.get(0).output());
+
+        var vm = new VMInterpreter();
+        vm.load(results.get(0).output());
+        vm.run("Main.main", 10_000);
+        assertEquals("014916", vm.output());
+    }
+
+}
@@ -0,0 +1,49 @@
+package br.ufma.ecp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class CallGraphTest {
+
+    @Test
+    public void reachableTest() {
+        var main = new CallGraph();
+        main.writeFunction("Main.main", 0);
+        main.writeCall("A.f", 0);
+        main.writeCall("Math.multiply", 2); // fora das fontes
+        main.writeReturn();
+        main.writeFunction("Main.dead", 0);
+        main.writeCall("A.g", 0);
+        main.writeReturn();
+
+        var a = new CallGraph();
+        a.writeFunction("A.f", 0);
+        a.writeCall("A.f", 0); // recursao
+        a.writeCall("A.h", 0);
+        a.writeReturn();
+        a.writeFunction("A.g", 0);
+        a.writeReturn();
+        a.writeFunction("A.h", 0);
+        a.writeReturn();
+
+        assertEquals(Set.of("Main.main", "A.f", "A.h"), CallGraph.reachable(List.of(main, a)));
+        // sem Main.main nem Sys.init nada e eliminado
+        assertEquals(Set.of("A.f", "A.g", "A.h"), CallGraph.reachable(List.of(a)));
+
+        var vmWriter = new VMWriter();
+        a.replay(vmWriter, CallGraph.reachable(List.of(main, a)));
+        assertEquals("""
+            function A.f 0
+            call A.f 0
+            call A.h 0
+            return
+            function A.h 0
+            return
+            """, vmWriter.vmOutput());
+    }
+
+}
@@ -0,0 +1,172 @@
+package br.ufma.ecp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import br.ufma.ecp.token.TokenType;
+
+public class ClassIndexTest extends TestSupport {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String HELPER = """
+        class Helper {
+            field int value;
+            constructor Helper new(int v) { let value = v; return this; }
+            method int get() { return value; }
+            function int twice(int a) { return a + a; }
+            function int run() { return twice(3); }
+        }
+        """;
+
+    private ClassIndex index(String... sources) {
+        var summaries = new java.util.ArrayList<ClassIndex.ClassSummary>();
+        for (String source : sources) {
+            summaries.add(ClassIndex.summarize(new Scanner(source.getBytes(StandardCharsets.UTF_8)).tokenize()));
+        }
+        return new ClassIndex(summaries);
+    }
+
+    @Test
+    public void summarizeTest() throws IOException {
+        var summary = ClassIndex.summarize(resource("Square/Square.jack"));
+        assertEquals("Square", summary.name());
+        var constructor = summary.subroutines().get("new");
+        assertEquals(TokenType.CONSTRUCTOR, constructor.kind());
+        assertEquals("Square", constructor.returnType());
+        assertEquals(3, constructor.nParams());
+        assertEquals(TokenType.METHOD, summary.subroutines().get("dispose").kind());
+        assertEquals(0, summary.subroutines().get("dispose").nParams());
+        assertEquals(10, summary.subroutines().size());
+    }
+
+    // mesmo tamanho e mesma data de modificacao: so o conteudo distingue as duas versoes
+    @Test
+    public void editedFileTest() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("Edited.jack");
+        Files.writeString(file, "class Edited { function void f() { return; } }");
+        var modified = Files.getLastModifiedTime(file);
+        assertTrue(ClassIndex.summarize(file).subroutines().containsKey("f"));
+
+        Files.writeString(file, "class Edited { function void g() { return; } }");
+        Files.setLastModifiedTime(file, modified);
+        var summary = ClassIndex.summarize(file);
+        assertTrue(summary.subroutines().containsKey("g"));
+        assertFalse(summary.subroutines().containsKey("f"));
+    }
+
+    @Test
+    public void summaryCacheBoundTest() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("Many.jack");
+        for (int i = 0; i <= ClassIndex.MAX_SUMMARIES; i++) {
+            Files.writeString(file, "class Many { function void f" + i + "() { return; } }");
+            ClassIndex.summarize(file);
+        }
+        assertTrue(ClassIndex.cachedSummaries() <= ClassIndex.MAX_SUMMARIES);
+    }
+
+    // com o CompilationCache o resumo fica em disco, pelo hash do conteudo: outro processo (sem o
+    // resumo em memoria) o le de la em vez de passar o fonte pelo Scanner
+    @Test
+    public void diskSummaryTest() throws IOException {
+        Path cacheDir = folder.newFolder("cache").toPath();
+        var cache = new CompilationCache(cacheDir, 1 << 20);
+        var input = ByteBuffer.wrap(HELPER.getBytes(StandardCharsets.UTF_8));
+        String hash = CompilationCache.hash(input, "");
+
+        var summary = ClassIndex.summarize(input, hash, cache);
+        assertEquals(summary, ClassIndex.decode(Files.readString(cacheDir.resolve(hash + ".sum"))));
+        assertEquals(0, cache.hits() + cache.misses());
+
+        // um resumo gravado para outro conteudo: se o fonte fosse lido, sairia Helper
+        var other = ByteBuffer.wrap("class Other { method int f(int a, int b) { return a; } }".getBytes(StandardCharsets.UTF_8));
+        String otherHash = CompilationCache.hash(other, "");
+        cache.storeSummary(otherHash, ClassIndex.encode(summary));
+        assertEquals(summary, ClassIndex.summarize(other, otherHash, cache));
+        assertNull(ClassIndex.decode(ClassIndex.encode(null)));
+    }
+
+    @Test
+    public void checkTest() {
+        var index = index(HELPER);
+        assertEquals(TokenType.FUNCTION, index.check("Helper", "twice", false, 1, 1).kind());
+        assertNull(index.check("Output", "printInt", false, 1, 1));
+
+        expectError(() -> index.check("Helper", "twice", false, 2, 7), "Helper.twice expects 1 arguments, got 2 (line 7)");
+        expectError(() -> index.check("Helper", "get", false, 0, 7), "Helper.get is a method (line 7)");
+        expectError(() -> index.check("Helper", "twice", true, 1, 7), "Helper.twice is not a method (line 7)");
+        expectError(() -> index.check("Helper", "missing", false, 0, 7), "Helper has no subroutine missing (line 7)");
+    }
+
+    private void expectError(Runnable call, String message) {
+        try {
+            call.run();
+            fail();
+        } catch (Error e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    // com o indice, twice() dentro de uma funcao nao recebe o this
+    @Test
+    public void unqualifiedFunctionTest() {
+        var vm = compileWithIndex(HELPER);
+        assertTrue(vm.contains("""
+            function Helper.run 0
+            push constant 3
+            call Helper.twice 1
+            return
+            """));
+    }
+
+    private String compileWithIndex(String source) {
+        var parser = new br.ufma.ecp.ast.AstParser(new Scanner(source.getBytes(StandardCharsets.UTF_8)).tokenize());
+        int root = parser.parseClass();
+        var generator = new CodeGenerator(parser.ast(), new VMWriter());
+        generator.useIndex(index(source));
+        generator.generate(root);
+        return generator.vmOutput();
+    }
+
+    @Test
+    public void projectTest() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        Files.writeString(dir.resolve("Helper.jack"), HELPER);
+        Files.writeString(dir.resolve("Main.jack"), """
+            class Main {
+                function void main() {
+                    var Helper h;
+                    let h = Helper.new(1);
+                    do h.get(2);
+                    return;
+                }
+            }
+            """);
+
+        var compiler = new JackCompiler(2);
+        try {
+            compiler.compile(List.of(dir));
+            fail();
+        } catch (Error e) {
+            assertEquals("Helper.get expects 0 arguments, got 1 (line 5)", e.getMessage());
+        } finally {
+            compiler.shutdown();
+        }
+    }
+
+}
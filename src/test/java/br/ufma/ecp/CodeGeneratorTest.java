@@ -0,0 +1,164 @@
+package br.ufma.ecp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+public class CodeGeneratorTest extends TestSupport {
+
+    private String compile(String input, Optimization... optimizations) {
+        return CodeGenerator.compile(input.getBytes(StandardCharsets.UTF_8), optimizations);
+    }
+
+    @Test
+    public void constructorAndMethodTest() {
+        var input = """
+            class Point {
+                field int x, y;
+                static int count;
+
+                constructor Point new(int ax, int ay) {
+                    let x = ax;
+                    let y = ay;
+                    let count = count + 1;
+                    return this;
+                }
+
+                method int sum(Point other) {
+                    return x + other.getX();
+                }
+            }
+            """;
+        var expected = """
+            function Point.new 0
+            push constant 2
+            call Memory.alloc 1
+            pop pointer 0
+            push argument 0
+            pop this 0
+            push argument 1
+            pop this 1
+            push static 0
+            push constant 1
+            add
+            pop static 0
+            push pointer 0
+            return
+            function Point.sum 0
+            push argument 0
+            pop pointer 0
+            push this 0
+            push argument 1
+            call Point.getX 1
+            add
+            return
+            """;
+        assertEquals(expected, compile(input));
+    }
+
+    @Test
+    public void arrayAndWhileTest() {
+        var input = """
+            class Main {
+                function int sum(Array a, int n) {
+                    var int i, s;
+                    let i = 0;
+                    while (i < n) {
+                        let a[i] = a[i] + 1;
+                        let s = s + a[i];
+                        let i = i + 1;
+                    }
+                    do Output.printInt(s);
+                    return s;
+                }
+            }
+            """;
+        var expected = """
+            function Main.sum 2
+            push constant 0
+            pop local 0
+            label WHILE_EXP0
+            push local 0
+            push argument 1
+            lt
+            not
+            if-goto WHILE_END0
+            push local 0
+            push argument 0
+            add
+            push local 0
+            push argument 0
+            add
+            pop pointer 1
+            push that 0
+            push constant 1
+            add
+            pop temp 0
+            pop pointer 1
+            push temp 0
+            pop that 0
+            push local 1
+            push local 0
+            push argument 0
+            add
+            pop pointer 1
+            push that 0
+            add
+            pop local 1
+            push local 0
+            push constant 1
+            add
+            pop local 0
+            goto WHILE_EXP0
+            label WHILE_END0
+            push local 1
+            call Output.printInt 1
+            pop temp 0
+            push local 1
+            return
+            """;
+        assertEquals(expected, compile(input));
+    }
+
+    @Test
+    public void optimizationsTest() {
+        var input = """
+            class Main {
+                function int f(int x) {
+                    return (x * (2 + 2)) + (10 - 20);
+                }
+            }
+            """;
+        var expected = """
+            function Main.f 0
+            push argument 0
+            pop temp 2
+            push temp 2
+            push temp 2
+            add
+            pop temp 2
+            push temp 2
+            push temp 2
+            add
+            push constant 10
+            neg
+            add
+            return
+            """;
+        assertEquals(expected, compile(input, Optimization.CONSTANT_FOLDING, Optimization.STRENGTH_REDUCTION));
+    }
+
+    // os mesmos exemplos que o Parser usa, agora com arrays (Square/Main.jack)
+    @Test
+    public void squareTest() throws IOException {
+        for (String name : new String[] {"Main", "Square", "SquareGame"}) {
+            var vm = CodeGenerator.compile(Files.readAllBytes(resource("Square/" + name + ".jack")));
+            assertEquals(true, vm.startsWith("function " + name + "."));
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+package br.ufma.ecp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CompilationCacheTest extends TestSupport {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path copySources() throws IOException {
+        Path dir = folder.newFolder("src").toPath();
+        for (String name : List.of("SquareGame", "Square")) {
+            Files.writeString(dir.resolve(name + ".jack"), fromFile("Square/" + name + ".jack"));
+        }
+        return dir;
+    }
+
+    private void compile(CompilationCache cache, Path dir) throws IOException {
+        var compiler = new JackCompiler(2);
+        compiler.useCache(cache);
+        try {
+            compiler.compile(List.of(dir));
+        } finally {
+            compiler.shutdown();
+        }
+    }
+
+    @Test
+    public void hitAndMissTest() throws IOException {
+        Path dir = copySources();
+        var cache = new CompilationCache(folder.newFolder("cache").toPath(), 1 << 20);
+
+        compile(cache, dir);
+        assertEquals(0, cache.hits());
+        assertEquals(2, cache.misses());
+        var expected = Files.readString(dir.resolve("Square.vm"));
+
+        Files.delete(dir.resolve("Square.vm"));
+        compile(cache, dir);
+        assertEquals(2, cache.hits());
+        assertEquals(expected, Files.readString(dir.resolve("Square.vm")));
+
+        // so o arquivo alterado volta a ser compilado
+        Files.writeString(dir.resolve("Square.jack"), "// alterado\n" + fromFile("Square/Square.jack"));
+        compile(cache, dir);
+        assertEquals(3, cache.hits());
+        assertEquals(3, cache.misses());
+    }
+
+    @Test
+    public void keyTest() throws IOException {
+        var cache = new CompilationCache(folder.newFolder("cache").toPath(), 1 << 20);
+        var source = ByteBuffer.wrap("class A {}".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(cache.key(source, "[]"), cache.key(source, "[]"));
+        assertNotEquals(cache.key(source, "[]"), cache.key(source, EnumSet.of(Optimization.PEEPHOLE).toString()));
+        assertEquals(0, source.position());
+    }
+
+    @Test
+    public void evictionTest() throws IOException {
+        Path cacheDir = folder.newFolder("cache").toPath();
+        Path output = folder.newFile("A.vm").toPath();
+        Files.writeString(output, "x".repeat(100));
+
+        var cache = new CompilationCache(cacheDir, 250);
+        cache.store("a", output);
+        cache.store("b", output);
+        Files.setLastModifiedTime(cacheDir.resolve("a.vm"), FileTime.fromMillis(1000));
+        Files.setLastModifiedTime(cacheDir.resolve("b.vm"), FileTime.fromMillis(2000));
+        assertTrue(cache.restore("a", output)); // a passa a ser a mais recente
+
+        cache.store("c", output);
+        assertEquals(200, cache.size());
+        assertFalse(Files.exists(cacheDir.resolve("b.vm")));
+        assertTrue(Files.exists(cacheDir.resolve("a.vm")));
+        assertTrue(Files.exists(cacheDir.resolve("c.vm")));
+
+        // o tamanho e recuperado ao reabrir o diretorio
+        assertEquals(200, new CompilationCache(cacheDir, 250).size());
+    }
+
+}
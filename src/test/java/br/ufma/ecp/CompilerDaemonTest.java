@@ -0,0 +1,125 @@
+package br.ufma.ecp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CompilerDaemonTest extends TestSupport {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Thread start(CompilerDaemon daemon, Path socket) throws InterruptedException, IOException {
+        var thread = new Thread(() -> {
+            try {
+                daemon.serve();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+        while (!DaemonClient.isRunning(socket)) {
+            Thread.sleep(10);
+        }
+        return thread;
+    }
+
+    @Test
+    public void compileTest() throws Exception {
+        Path socket = folder.getRoot().toPath().resolve("jackc.sock");
+        Path dir = folder.newFolder("src").toPath();
+        Files.writeString(dir.resolve("Square.jack"), fromFile("Square/Square.jack"));
+
+        var thread = start(new CompilerDaemon(socket), socket);
+
+        var out = new ByteArrayOutputStream();
+        int status = DaemonClient.compile(socket, List.of(dir.toString()), new PrintStream(out, true, StandardCharsets.UTF_8));
+        assertEquals(0, status);
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("Square.vm"));
+
+        var parser = new Parser(Files.readAllBytes(dir.resolve("Square.jack")));
+        parser.parser();
+        assertEquals(parser.VMOutput(), Files.readString(dir.resolve("Square.vm")));
+
+        // um erro no pedido nao derruba o daemon
+        out.reset();
+        status = DaemonClient.compile(socket, List.of(dir.resolve("Missing.jack").toString()),
+                new PrintStream(out, true, StandardCharsets.UTF_8));
+        assertEquals(1, status);
+        assertTrue(DaemonClient.isRunning(socket));
+
+        assertEquals(0, DaemonClient.compile(socket, List.of(CompilerDaemon.STOP), System.out));
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+        assertFalse(Files.exists(socket));
+    }
+
+    // a saida do programa passa em blocos com tamanho: uma linha "exit 0" nao vira o status
+    @Test
+    public void framingTest() throws Exception {
+        Path socket = folder.getRoot().toPath().resolve("jackc.sock");
+        Path dir = folder.newFolder("src").toPath();
+        Files.writeString(dir.resolve("Main.jack"), """
+            class Main {
+                function void main() {
+                    do Output.printString("exit 0");
+                    do Output.println();
+                    do Sys.error(5);
+                    return;
+                }
+            }
+            """);
+
+        var thread = start(new CompilerDaemon(socket), socket);
+
+        var out = new ByteArrayOutputStream();
+        int status = DaemonClient.compile(socket, List.of("-run", dir.toString()), new PrintStream(out, true, StandardCharsets.UTF_8));
+        var output = out.toString(StandardCharsets.UTF_8);
+        assertEquals(1, status);
+        assertTrue(output, output.contains("\nexit 0\n"));
+        assertTrue(output, output.endsWith("run: Sys.error 5\n"));
+
+        DaemonClient.compile(socket, List.of(CompilerDaemon.STOP), System.out);
+        thread.join(5000);
+    }
+
+    @Test
+    public void missingCacheDirTest() throws Exception {
+        Path dir = folder.newFolder("src").toPath();
+        Files.writeString(dir.resolve("Square.jack"), fromFile("Square/Square.jack"));
+
+        var out = new ByteArrayOutputStream();
+        int status = App.run(List.of(dir.toString(), "-cache"), new PrintStream(out, true, StandardCharsets.UTF_8));
+        assertEquals(1, status);
+        assertTrue(out.toString(StandardCharsets.UTF_8).startsWith("uso:"));
+        assertFalse(Files.exists(dir.resolve("Square.vm")));
+    }
+
+    @Test
+    public void notRunningTest() throws Exception {
+        Path socket = folder.getRoot().toPath().resolve("none.sock");
+        assertEquals(DaemonClient.NOT_RUNNING, DaemonClient.compile(socket, List.of("A.jack"), System.out));
+
+        // socket orfao: o arquivo existe mas ninguem ouve
+        Files.createFile(socket);
+        assertEquals(DaemonClient.NOT_RUNNING, DaemonClient.compile(socket, List.of("A.jack"), System.out));
+
+        var thread = start(new CompilerDaemon(socket), socket);
+        assertTrue(DaemonClient.isRunning(socket));
+        DaemonClient.compile(socket, List.of(CompilerDaemon.STOP), System.out);
+        thread.join(5000);
+    }
+
+}
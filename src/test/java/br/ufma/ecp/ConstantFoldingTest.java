@@ -0,0 +1,115 @@
+package br.ufma.ecp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class ConstantFoldingTest {
+
+    private String compileExpression(String input) {
+        var parser = new Parser(input.getBytes(StandardCharsets.UTF_8));
+        parser.enable(Optimization.CONSTANT_FOLDING);
+        parser.parseExpression();
+        return parser.VMOutput();
+    }
+
+    @Test
+    public void foldTest() {
+        assertEquals("push constant 10\n", compileExpression("2 * 3 + 4"));
+        assertEquals("push constant 201\n", compileExpression("(10 + 20 - 60 * 4) / 2 + 261"));
+        assertEquals("push constant 1\n", compileExpression("(7 & 3) | 1 - 1 / 2"));
+    }
+
+    @Test
+    public void negativeResultTest() {
+        var expected = """
+            push constant 1
+            neg
+            """;
+        assertEquals(expected, compileExpression("(1 + 2) * 3 - 10"));
+        assertEquals(expected, compileExpression("1 < 2"));
+        assertEquals(expected, compileExpression("~ 0"));
+        assertEquals("push constant 0\n", compileExpression("3 = 4"));
+    }
+
+    @Test
+    public void wraparoundTest() {
+        var expected = """
+            push constant 25536
+            neg
+            """;
+        assertEquals(expected, compileExpression("200 * 200"));
+
+        expected = """
+            push constant 32767
+            not
+            """;
+        assertEquals(expected, compileExpression("32767 + 1"));
+    }
+
+    @Test
+    public void unaryMinusTest() {
+        var expected = """
+            push constant 3
+            neg
+            """;
+        assertEquals(expected, compileExpression("- 5 + 2"));
+        assertEquals("push constant 5\n", compileExpression("-(- 5)"));
+    }
+
+    @Test
+    public void divisionByZeroTest() {
+        var expected = """
+            push constant 10
+            push constant 0
+            call Math.divide 2
+            """;
+        assertEquals(expected, compileExpression("10 / (1 - 1)"));
+    }
+
+    @Test
+    public void evaluationOrderTest() {
+        var expected = """
+            push constant 6
+            push constant 1
+            call Math.abs 1
+            add
+            """;
+        assertEquals(expected, compileExpression("2 * 3 + Math.abs(1)"));
+
+        expected = """
+            push constant 1
+            call Math.abs 1
+            push constant 2
+            add
+            push constant 3
+            call Math.multiply 2
+            """;
+        assertEquals(expected, compileExpression("Math.abs(1) + 2 * 3"));
+
+        expected = """
+            push constant 4
+            push constant 2
+            call Math.abs 1
+            push constant 2
+            call Math.multiply 2
+            sub
+            """;
+        assertEquals(expected, compileExpression("4 - (Math.abs(1 + 1) * (6 / 3))"));
+    }
+
+    @Test
+    public void disabledTest() {
+        var parser = new Parser("2 * 3".getBytes(StandardCharsets.UTF_8));
+        parser.parseExpression();
+        var expected = """
+            push constant 2
+            push constant 3
+            call Math.multiply 2
+            """;
+        assertEquals(expected, parser.VMOutput());
+    }
+
+}
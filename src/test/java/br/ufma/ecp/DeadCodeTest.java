@@ -0,0 +1,143 @@
+package br.ufma.ecp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Test;
+
+public class DeadCodeTest {
+
+    private String compile(String body, Optimization... optimizations) {
+        var input = "class Main { function int f(int x) { " + body + " } }";
+        return CodeGenerator.compile(input.getBytes(StandardCharsets.UTF_8), optimizations);
+    }
+
+    private String compile(String body) {
+        return compile(body, Optimization.DEAD_CODE);
+    }
+
+    @Test
+    public void afterReturnTest() {
+        var expected = """
+            function Main.f 0
+            push argument 0
+            return
+            """;
+        assertEquals(expected, compile("return x; let x = 1; do Output.printInt(x); return 0;"));
+    }
+
+    @Test
+    public void constantIfTest() {
+        var expected = """
+            function Main.f 0
+            push constant 2
+            pop argument 0
+            push argument 0
+            return
+            """;
+        assertEquals(expected, compile("if (false) { let x = 1; } else { let x = 2; } return x;"));
+        assertEquals(expected, compile("if (1 - 1) { let x = 1; } else { let x = 2; } return x;",
+                Optimization.DEAD_CODE, Optimization.CONSTANT_FOLDING));
+        assertEquals("""
+            function Main.f 0
+            push constant 1
+            return
+            """, compile("if (true) { return 1; } let x = 2; return x;"));
+    }
+
+    @Test
+    public void constantWhileTest() {
+        assertEquals("""
+            function Main.f 0
+            push argument 0
+            return
+            """, compile("while (null) { let x = x + 1; } return x;"));
+
+        // while (true) so sai por return: o teste some, e o que vem depois tambem
+        assertEquals("""
+            function Main.f 0
+            label WHILE_EXP0
+            push argument 0
+            push constant 1
+            add
+            pop argument 0
+            goto WHILE_EXP0
+            """, compile("while (true) { let x = x + 1; } return x;"));
+    }
+
+    // o while testa com "not; if-goto": so -1 repete, entao while (1) nao executa o corpo
+    @Test
+    public void nonCanonicalWhileTest() {
+        var source = """
+            class Main {
+                function void main() {
+                    var int x;
+                    let x = 4;
+                    while (1) {
+                        let x = 99;
+                    }
+                    do Output.printInt(x);
+                    return;
+                }
+            }
+            """;
+        for (var optimizations : List.of(new Optimization[0], new Optimization[] { Optimization.DEAD_CODE })) {
+            var vm = new VMInterpreter();
+            vm.load(CodeGenerator.compile(source.getBytes(StandardCharsets.UTF_8), optimizations));
+            vm.run("Main.main", 1000);
+            assertEquals("4", vm.output());
+        }
+    }
+
+    @Test
+    public void unusedLabelsTest() {
+        // o ramo then retorna: nao ha goto IF_END nem o rotulo
+        assertEquals("""
+            function Main.f 0
+            push argument 0
+            if-goto IF_TRUE0
+            goto IF_FALSE0
+            label IF_TRUE0
+            push constant 1
+            return
+            label IF_FALSE0
+            push constant 2
+            return
+            """, compile("if (x) { return 1; } else { return 2; } return 3;"));
+
+        // um corpo que retorna nao volta ao teste
+        assertEquals("""
+            function Main.f 0
+            push argument 0
+            not
+            if-goto WHILE_END0
+            push constant 1
+            return
+            label WHILE_END0
+            push constant 0
+            return
+            """, compile("while (x) { return 1; } return 0;"));
+    }
+
+    @Test
+    public void disabledTest() {
+        var expected = """
+            function Main.f 0
+            push constant 0
+            if-goto IF_TRUE0
+            goto IF_FALSE0
+            label IF_TRUE0
+            push constant 1
+            return
+            label IF_FALSE0
+            push constant 0
+            return
+            push constant 2
+            return
+            """;
+        assertEquals(expected, compile("if (false) { return 1; } return 0; return 2;", new Optimization[0]));
+    }
+
+}
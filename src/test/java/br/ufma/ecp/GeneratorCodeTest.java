@@ -4,6 +4,8 @@ package br.ufma.ecp;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 
 import org.junit.Test;
@@ -830,7 +832,18 @@ public class GeneratorCodeTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void streamingWriterTest () throws IOException {
+        var parser = new Parser(TestSupport.resource("Square/SquareGame.jack"));
+        parser.parser();
 
-   
-    
-}
\ No newline at end of file
+        var out = new ByteArrayOutputStream();
+        var vmWriter = new VMWriter(out);
+        var streamed = new Parser(TestSupport.resource("Square/SquareGame.jack"), vmWriter);
+        streamed.parser();
+        vmWriter.flush();
+
+        assertEquals(parser.VMOutput(), out.toString(StandardCharsets.UTF_8));
+    }
+
+}
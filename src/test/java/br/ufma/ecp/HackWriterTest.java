@@ -0,0 +1,261 @@
+package br.ufma.ecp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import br.ufma.ecp.VMWriter.Command;
+import br.ufma.ecp.VMWriter.Segment;
+
+public class HackWriterTest extends TestSupport {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String MAIN = """
+        class Main {
+            static int result, product;
+
+            function int fib(int n) {
+                if (n < 2) {
+                    return n;
+                }
+                return Main.fib(n - 1) + Main.fib(n - 2);
+            }
+
+            function int mul(int a, int b) {
+                var int sum;
+                let sum = 0;
+                while (b > 0) {
+                    let sum = sum + a;
+                    let b = b - 1;
+                }
+                return sum;
+            }
+
+            function void main() {
+                var int i, sum, c, d, e, f, g, h;
+                var Array a;
+                let a = 8000;
+                let i = 0;
+                let sum = 0;
+                while (i < 10) {
+                    let sum = sum + Main.fib(i);
+                    let i = i + 1;
+                }
+                let h = sum;
+                let a[3] = h;
+                let result = a[3];
+                if ((~(result = 88)) | (result > 100)) {
+                    let result = -1;
+                }
+                let product = Main.mul(7, 6) & 63;
+                return;
+            }
+        }
+        """;
+
+    private static final String SYS = """
+        class Sys {
+            function void init() {
+                do Main.main();
+                return;
+            }
+        }
+        """;
+
+    @Test
+    public void pushPopTest() {
+        var writer = new HackWriter();
+        writer.writeFunction("Main.f", 0);
+        writer.writePush(Segment.CONST, 7);
+        writer.writePop(Segment.STATIC, 2);
+        assertEquals("""
+            (Main.f)
+            @7
+            D=A
+            @SP
+            AM=M+1
+            A=A-1
+            M=D
+            @SP
+            AM=M-1
+            D=M
+            @Main.2
+            M=D
+            """, writer.vmOutput());
+    }
+
+    @Test
+    public void compareTest() {
+        var writer = new HackWriter();
+        writer.writeFunction("Main.f", 0);
+        writer.writeArithmetic(Command.LT);
+        writer.writeReturn();
+        assertEquals("""
+            (Main.f)
+            @Main.f$ret.0
+            D=A
+            @$$LT
+            0;JMP
+            (Main.f$ret.0)
+            @$$RETURN
+            0;JMP
+            """, writer.vmOutput());
+    }
+
+    @Test
+    public void programTest() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        Files.writeString(dir.resolve("Main.jack"), MAIN);
+        Files.writeString(dir.resolve("Sys.jack"), SYS);
+        Path program = dir.resolve("Test.asm");
+
+        // com as otimizacoes o PeepholeOptimizer fica entre o gerador e o HackWriter, e o CallGraph
+        // antes do link; os rotulos vem dos nomes das funcoes, entao os dois parsers sao montados
+        for (boolean ast : List.of(false, true)) {
+            for (var optimizations : List.of(EnumSet.noneOf(Optimization.class), EnumSet.allOf(Optimization.class))) {
+                var compiler = new JackCompiler(2, optimizations, ast);
+                compiler.assembleTo(program);
+                compiler.eliminateUnused(!optimizations.isEmpty());
+                var results = compiler.compile(List.of(dir));
+                compiler.shutdown();
+                assertEquals(program, results.get(0).output());
+
+                var cpu = new Hack(Files.readAllLines(program));
+                cpu.run("$$HALT", 1_000_000);
+                assertEquals(88, cpu.variable("Main.0"));
+                assertEquals(42, cpu.variable("Main.1"));
+                assertEquals(88, cpu.ram[8003]);
+                assertEquals(257, cpu.ram[0]); // o valor devolvido por Sys.init
+            }
+        }
+    }
+
+    // montador e CPU Hack minimos: so o necessario para executar o que o HackWriter gera
+    private static class Hack {
+
+        final int[] ram = new int[32768];
+        private final List<String[]> rom = new ArrayList<>(); // {valor de A} ou {dest, comp, jump}
+        private final Map<String, Integer> symbols = new HashMap<>();
+
+        Hack(List<String> lines) {
+            for (int i = 0; i < 16; i++) {
+                symbols.put("R" + i, i);
+            }
+            symbols.put("SP", 0);
+            symbols.put("LCL", 1);
+            symbols.put("ARG", 2);
+            symbols.put("THIS", 3);
+            symbols.put("THAT", 4);
+
+            var code = new ArrayList<String>();
+            for (String line : lines) {
+                line = line.trim();
+                if (line.startsWith("(")) {
+                    symbols.put(line.substring(1, line.length() - 1), code.size());
+                } else if (!line.isEmpty()) {
+                    code.add(line);
+                }
+            }
+            int nextVariable = 16;
+            for (String line : code) {
+                if (line.startsWith("@")) {
+                    String symbol = line.substring(1);
+                    if (!Character.isDigit(symbol.charAt(0)) && !symbols.containsKey(symbol)) {
+                        symbols.put(symbol, nextVariable++);
+                    }
+                    int value = Character.isDigit(symbol.charAt(0)) ? Integer.parseInt(symbol) : symbols.get(symbol);
+                    rom.add(new String[] { Integer.toString(value) });
+                } else {
+                    String dest = line.contains("=") ? line.substring(0, line.indexOf('=')) : "";
+                    String rest = line.contains("=") ? line.substring(line.indexOf('=') + 1) : line;
+                    String comp = rest.contains(";") ? rest.substring(0, rest.indexOf(';')) : rest;
+                    String jump = rest.contains(";") ? rest.substring(rest.indexOf(';') + 1) : "";
+                    rom.add(new String[] { dest, comp, jump });
+                }
+            }
+        }
+
+        int variable(String name) {
+            return ram[symbols.get(name)];
+        }
+
+        void run(String haltLabel, int maxSteps) {
+            int halt = symbols.get(haltLabel);
+            int pc = 0;
+            int a = 0;
+            int d = 0;
+            for (int step = 0; pc != halt; step++) {
+                if (step == maxSteps) {
+                    throw new AssertionError("program did not halt");
+                }
+                String[] instruction = rom.get(pc++);
+                if (instruction.length == 1) {
+                    a = Integer.parseInt(instruction[0]);
+                    continue;
+                }
+                int m = ram[a & 0x7FFF];
+                int out = (short) comp(instruction[1], a, d, m);
+                String dest = instruction[0];
+                int address = a;
+                if (dest.contains("A")) a = out;
+                if (dest.contains("D")) d = out;
+                if (dest.contains("M")) ram[address & 0x7FFF] = out;
+                if (jumps(instruction[2], out)) {
+                    pc = a;
+                }
+            }
+        }
+
+        private static int comp(String comp, int a, int d, int m) {
+            switch (comp) {
+                case "0": return 0;
+                case "1": return 1;
+                case "-1": return -1;
+                case "D": return d;
+                case "A": return a;
+                case "M": return m;
+                case "!M": return ~m;
+                case "-M": return -m;
+                case "D+1": return d + 1;
+                case "A+1": return a + 1;
+                case "M+1": return m + 1;
+                case "M-1": return m - 1;
+                case "A-1": return a - 1;
+                case "D+A": return d + a;
+                case "D+M": return d + m;
+                case "D-A": return d - a;
+                case "D-M": return d - m;
+                case "M-D": return m - d;
+                case "D&M": return d & m;
+                case "D|M": return d | m;
+                default: throw new AssertionError("comp " + comp);
+            }
+        }
+
+        private static boolean jumps(String jump, int out) {
+            switch (jump) {
+                case "": return false;
+                case "JMP": return true;
+                case "JEQ": return out == 0;
+                case "JNE": return out != 0;
+                case "JGT": return out > 0;
+                case "JLT": return out < 0;
+                default: throw new AssertionError("jump " + jump);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,204 @@
+package br.ufma.ecp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JackCompilerTest extends TestSupport {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCompileDirectory() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        for (String name : List.of("SquareGame", "Square")) {
+            Files.writeString(dir.resolve(name + ".jack"), fromFile("Square/" + name + ".jack"));
+        }
+
+        var compiler = new JackCompiler(2);
+        var results = compiler.compile(List.of(dir));
+        compiler.shutdown();
+
+        assertEquals(2, results.size());
+        assertEquals(dir.resolve("Square.jack"), results.get(0).source());
+        assertEquals(dir.resolve("SquareGame.jack"), results.get(1).source());
+
+        for (var result : results) {
+            assertTrue(Files.exists(result.output()));
+            var parser = new Parser(Files.readAllBytes(result.source()));
+            parser.parser();
+            assertEquals(parser.VMOutput(), Files.readString(result.output()));
+        }
+    }
+
+    @Test
+    public void testRecovery() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        Files.writeString(dir.resolve("Square.jack"), fromFile("Square/Square.jack"));
+        Files.writeString(dir.resolve("Broken.jack"), """
+            class Broken {
+                function void f() {
+                    let = 1;
+                    do Square.new(1, 2);
+                    return;
+                /* sem fim
+            }
+            """);
+
+        for (boolean ast : List.of(false, true)) {
+            var compiler = new JackCompiler(2, EnumSet.noneOf(Optimization.class), ast);
+            compiler.enableRecovery(true);
+            var results = compiler.compile(List.of(dir));
+            compiler.shutdown();
+
+            var broken = results.get(0);
+            assertFalse(Files.exists(broken.output()));
+            if (ast) {
+                assertEquals(List.of("Syntax error at line 3"), broken.errors());
+            } else {
+                assertEquals(List.of(
+                        "Syntax error at line 3: unexpected '='",
+                        "Square.new expects 3 arguments, got 2 (line 4)",
+                        "Syntax error at line 6: unexpected '/*'",
+                        "Syntax error at line 6: unexpected 'EOF'"), broken.errors());
+            }
+
+            var square = results.get(1);
+            assertEquals(List.of(), square.errors());
+            assertTrue(Files.exists(square.output()));
+        }
+    }
+
+    @Test
+    public void testSemanticErrors() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        Files.writeString(dir.resolve("Square.jack"), fromFile("Square/Square.jack"));
+        Files.writeString(dir.resolve("Duplicate.jack"), """
+            class Duplicate {
+                function void f() {
+                    var int a;
+                    var char a;
+                    return;
+                }
+            }
+            """);
+        Files.writeString(dir.resolve("Undefined.jack"), """
+            class Undefined {
+                function void f() {
+                    let q[1] = 2;
+                    return;
+                }
+            }
+            """);
+
+        for (boolean ast : List.of(false, true)) {
+            var compiler = new JackCompiler(2, EnumSet.noneOf(Optimization.class), ast);
+            compiler.enableRecovery(true);
+            var results = compiler.compile(List.of(dir));
+            compiler.shutdown();
+
+            assertEquals(List.of("variable a already defined at line 4"), results.get(0).errors());
+            assertFalse(Files.exists(results.get(0).output()));
+            assertEquals(List.of(), results.get(1).errors());
+            assertTrue(Files.exists(results.get(1).output()));
+            assertEquals(List.of("undefined variable q at line 3"), results.get(2).errors());
+            assertFalse(Files.exists(results.get(2).output()));
+        }
+    }
+
+    @Test
+    public void testIntegerRange() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        Files.writeString(dir.resolve("Main.jack"), """
+            class Main {
+                function int f() {
+                    var int a;
+                    let a = 32767;
+                    let a = 32768;
+                    return 99999999999 + a;
+                }
+            }
+            """);
+
+        for (boolean ast : List.of(false, true)) {
+            var compiler = new JackCompiler(2, EnumSet.noneOf(Optimization.class), ast);
+            compiler.enableRecovery(true);
+            var results = compiler.compile(List.of(dir));
+            compiler.shutdown();
+
+            // a AST para no primeiro erro; o Parser anota os dois e segue
+            var errors = ast
+                    ? List.of("integer constant 32768 out of range at line 5")
+                    : List.of("integer constant 32768 out of range at line 5",
+                            "integer constant 99999999999 out of range at line 6");
+            assertEquals(errors, results.get(0).errors());
+            assertFalse(Files.exists(results.get(0).output()));
+        }
+    }
+
+    @Test
+    public void testEliminateUnused() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        Files.writeString(dir.resolve("Main.jack"), """
+            class Main {
+                function void main() {
+                    var Counter c;
+                    let c = Counter.new();
+                    do c.inc();
+                    do Output.printInt(c.get());
+                    return;
+                }
+                function void unused() {
+                    do Counter.reset();
+                    return;
+                }
+            }
+            """);
+        Files.writeString(dir.resolve("Counter.jack"), """
+            class Counter {
+                field int n;
+                constructor Counter new() { let n = 0; return this; }
+                method void inc() { let n = n + 1; return; }
+                method int get() { return n; }
+                function void reset() { return; }
+            }
+            """);
+        Files.writeString(dir.resolve("Unused.jack"), """
+            class Unused {
+                function void f() { return; }
+            }
+            """);
+
+        // as raizes sao procuradas pelo nome, entao o Parser de uma passada tambem precisa nomear as funcoes
+        for (boolean ast : List.of(false, true)) {
+            var compiler = new JackCompiler(2, EnumSet.noneOf(Optimization.class), ast);
+            compiler.eliminateUnused(true);
+            var results = compiler.compile(List.of(dir));
+            compiler.shutdown();
+
+            var vm = new VMInterpreter();
+            for (var result : results) {
+                assertEquals(List.of(), result.errors());
+                vm.load(result.output());
+            }
+            assertTrue(vm.hasFunction("Counter.get"));
+            assertFalse(vm.hasFunction("Counter.reset"));
+            assertFalse(vm.hasFunction("Main.unused"));
+            assertEquals("", Files.readString(dir.resolve("Unused.vm")));
+            vm.run("Main.main", 1000);
+            assertEquals("1", vm.output());
+        }
+    }
+
+}
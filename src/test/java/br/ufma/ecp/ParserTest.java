@@ -3,8 +3,10 @@ package br.ufma.ecp;
 import java.nio.charset.StandardCharsets;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.util.List;
 
 import org.junit.Test;
 
@@ -135,13 +137,16 @@ public class ParserTest extends TestSupport {
 
         String actual = parser.VMOutput();
         String expected = """
-            function Main.null 0
+            function Main.soma 0
+            push argument 0
+            push argument 1
             add
             return
-            function Main.null 1
+            function Main.main 1
             push constant 4
             push constant 5
             call Main.soma 2
+            pop local 0
             push constant 0
             return
                 """;
@@ -165,8 +170,10 @@ public class ParserTest extends TestSupport {
         parser.parser();
         String actual = parser.VMOutput();
         String expected = """
-            function Main.null 1
+            function Main.main 1
             push constant 10
+            pop local 0
+            push local 0
             call Output.printInt 1
             pop temp 0
             push constant 0
@@ -193,12 +200,14 @@ public class ParserTest extends TestSupport {
         parser.parser();
         String actual = parser.VMOutput();
         String expected = """
-            function Main.null 2
+            function Main.main 2
             push constant 10
             push constant 20
             call Point.new 2
+            pop local 0
             push local 0
             call Point.getX 1
+            pop local 1
             push constant 0
             return
                 """;
@@ -220,8 +229,9 @@ public class ParserTest extends TestSupport {
         parser.parser();
         String actual = parser.VMOutput();
         String expected = """
-            function Main.null 1
+            function Main.main 1
             push constant 42
+            pop local 0
             push constant 0
             return
                 """;
@@ -615,10 +625,10 @@ public class ParserTest extends TestSupport {
         parser.parser();
         String actual = parser.VMOutput();
         String expected = """
-            function Main.null 0
+            function Main.soma 0
             push constant 30
             return
-            function Main.null 1
+            function Main.main 1
             push constant 0
             return    
                 """;
@@ -690,7 +700,8 @@ public class ParserTest extends TestSupport {
         parser.parser();
         String actual = parser.VMOutput();
         String expected = """
-            function Main.null 1
+            function Main.funcao 1
+            push local 0
             return
             """;
         assertEquals(expected, actual);
@@ -827,5 +838,97 @@ public class ParserTest extends TestSupport {
       System.out.println(result);
     }
 
-    
-}
\ No newline at end of file
+    @Test
+    public void testParserWithTokenBuffer() throws IOException {
+        var input = fromFile("Square/SquareGame.jack").getBytes(StandardCharsets.UTF_8);
+
+        var parser = new Parser(input);
+        parser.parser();
+        var buffered = new Parser(new Scanner(input).tokenize());
+        buffered.parser();
+
+        assertEquals(parser.XMLOutput(), buffered.XMLOutput());
+        assertEquals(parser.VMOutput(), buffered.VMOutput());
+    }
+
+    @Test
+    public void testParserWithMappedFile() throws IOException {
+        var input = fromFile("Square/Square.jack");
+
+        var parser = new Parser(input.getBytes(StandardCharsets.UTF_8));
+        parser.parser();
+        var mapped = new Parser(resource("Square/Square.jack"));
+        mapped.parser();
+
+        assertEquals(parser.XMLOutput(), mapped.XMLOutput());
+        assertEquals(parser.VMOutput(), mapped.VMOutput());
+    }
+
+    @Test
+    public void testParserWithoutXML() throws IOException {
+        var input = fromFile("Square/SquareGame.jack").getBytes(StandardCharsets.UTF_8);
+
+        var parser = new Parser(input);
+        parser.parser();
+        var vmOnly = new Parser(input);
+        vmOnly.enableXML(false);
+        vmOnly.parser();
+
+        assertEquals(parser.VMOutput(), vmOnly.VMOutput());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testXMLOutputDisabled() {
+        var parser = new Parser("10".getBytes(StandardCharsets.UTF_8));
+        parser.enableXML(false);
+        parser.parseExpression();
+        parser.XMLOutput();
+    }
+
+    private static final String BROKEN = """
+        class Main {
+            field int x
+            function void main() {
+                var int a;
+                let a = ;
+                let a = 1;
+                while (a < ) { let a = a + 1; }
+                do Output.printInt(a);
+                return;
+            }
+            function void other(int a b) {
+                return;
+            }
+            method void last() {
+                let x = 2 * ;
+                return;
+            }
+        }
+        """;
+
+    @Test
+    public void testErrorRecovery() {
+        var parser = new Parser(BROKEN.getBytes(StandardCharsets.UTF_8));
+        parser.enableRecovery(true);
+        parser.parser();
+        assertEquals(List.of(
+                "Syntax error at line 3: unexpected 'function'",
+                "Syntax error at line 5: unexpected ';'",
+                "Syntax error at line 7: unexpected ')'",
+                "Syntax error at line 11: unexpected 'b'",
+                "Syntax error at line 15: unexpected ';'"), parser.errors());
+    }
+
+    @Test
+    public void testFirstErrorStops() {
+        var parser = new Parser(BROKEN.getBytes(StandardCharsets.UTF_8));
+        try {
+            parser.parser();
+            fail();
+        } catch (Error e) {
+            assertEquals("Syntax error at line 3: unexpected 'function'", e.getMessage());
+        }
+        assertEquals(List.of(), parser.errors());
+    }
+
+}
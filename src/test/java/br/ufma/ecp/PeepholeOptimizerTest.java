@@ -0,0 +1,169 @@
+package br.ufma.ecp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Test;
+
+import br.ufma.ecp.VMWriter.Command;
+import br.ufma.ecp.VMWriter.Segment;
+
+public class PeepholeOptimizerTest {
+
+    private String compileStatement(String input) {
+        var parser = new Parser(input.getBytes(StandardCharsets.UTF_8));
+        parser.enable(Optimization.PEEPHOLE);
+        parser.parseStatement();
+        return parser.VMOutput();
+    }
+
+    @Test
+    public void jumpOverJumpTest() {
+        var actual = compileStatement("""
+            if (1 < 2) {
+                return 10;
+            }
+            """);
+        var expected = """
+            push constant 1
+            push constant 2
+            lt
+            not
+            if-goto IF_FALSE0
+            push constant 10
+            return
+            label IF_FALSE0
+            """;
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void constantConditionTest() {
+        var actual = compileStatement("""
+            if (false) {
+                return 10;
+            } else {
+                return 20;
+            }
+            """);
+        var expected = """
+            push constant 20
+            return
+            """;
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void trueConditionTest() {
+        var actual = compileStatement("""
+            while (true) {
+                return 10;
+            }
+            """);
+        var expected = """
+            push constant 10
+            return
+            """;
+        assertEquals(expected, actual);
+    }
+
+    // x & 4 e verdadeiro sem ser -1: o not nao inverte, entao o salto sobre o goto fica
+    @Test
+    public void nonBooleanConditionTest() {
+        var source = """
+            class Main {
+                function void main() {
+                    var int x;
+                    let x = 5;
+                    if (x & 4) {
+                        do Output.printInt(1);
+                    } else {
+                        do Output.printInt(2);
+                    }
+                    return;
+                }
+            }
+            """;
+        for (var optimizations : List.of(new Optimization[0], new Optimization[] { Optimization.PEEPHOLE })) {
+            var vm = new VMInterpreter();
+            vm.load(CodeGenerator.compile(source.getBytes(StandardCharsets.UTF_8), optimizations));
+            vm.run("Main.main", 1000);
+            assertEquals("1", vm.output());
+        }
+
+        var code = List.of(
+                Instruction.push(Segment.LOCAL, 0),
+                Instruction.push(Segment.CONST, 4),
+                Instruction.arithmetic(Command.AND),
+                Instruction.ifGoto("IF_TRUE0"),
+                Instruction.jump("IF_FALSE0"),
+                Instruction.label("IF_TRUE0"),
+                Instruction.ret(),
+                Instruction.label("IF_FALSE0"),
+                Instruction.ret());
+        assertEquals(code, PeepholeOptimizer.optimize(code));
+    }
+
+    @Test
+    public void pushPopTest() {
+        var code = List.of(
+            Instruction.push(Segment.LOCAL, 1),
+            Instruction.pop(Segment.LOCAL, 1),
+            Instruction.push(Segment.LOCAL, 1),
+            Instruction.pop(Segment.LOCAL, 2),
+            Instruction.arithmetic(Command.NOT),
+            Instruction.arithmetic(Command.NOT),
+            Instruction.ret());
+
+        var expected = List.of(
+            Instruction.push(Segment.LOCAL, 1),
+            Instruction.pop(Segment.LOCAL, 2),
+            Instruction.ret());
+        assertEquals(expected, PeepholeOptimizer.optimize(code));
+    }
+
+    @Test
+    public void jumpThreadingTest() {
+        var code = List.of(
+            Instruction.ifGoto("A"),
+            Instruction.push(Segment.CONST, 1),
+            Instruction.ret(),
+            Instruction.label("A"),
+            Instruction.jump("C"),
+            Instruction.push(Segment.CONST, 2),
+            Instruction.ret(),
+            Instruction.label("C"),
+            Instruction.push(Segment.CONST, 3),
+            Instruction.ret());
+
+        var expected = List.of(
+            Instruction.ifGoto("C"),
+            Instruction.push(Segment.CONST, 1),
+            Instruction.ret(),
+            Instruction.label("C"),
+            Instruction.push(Segment.CONST, 3),
+            Instruction.ret());
+        assertEquals(expected, PeepholeOptimizer.optimize(code));
+    }
+
+    @Test
+    public void streamingTest() throws IOException {
+        var plain = new Parser(TestSupport.resource("Square/SquareGame.jack"));
+        plain.enable(Optimization.PEEPHOLE);
+        plain.parser();
+
+        var out = new ByteArrayOutputStream();
+        var vmWriter = new VMWriter(out);
+        var streamed = new Parser(TestSupport.resource("Square/SquareGame.jack"), vmWriter);
+        streamed.enable(Optimization.PEEPHOLE);
+        streamed.parser();
+        vmWriter.flush();
+
+        assertEquals(plain.VMOutput(), out.toString(StandardCharsets.UTF_8));
+    }
+
+}
@@ -1,12 +1,15 @@
 package br.ufma.ecp;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 import org.junit.Test;
 
+import br.ufma.ecp.token.NamePool;
 import br.ufma.ecp.token.Token;
 import br.ufma.ecp.token.TokenType;
 
@@ -63,6 +66,137 @@ public class ScannerTest extends TestSupport {
         assertEquals(expectedResult, result.toString());
     }
 
-    
-    
+    @Test
+    public void testTokenBuffer () {
+        String input = "let s = \"ola mundo\"; // fim\n  do x.f(42);";
+        var tokens = new Scanner(input.getBytes(StandardCharsets.UTF_8)).tokenize();
+
+        assertEquals(14, tokens.size());
+        assertEquals(TokenType.STRING, tokens.type(3));
+        assertEquals(9, tokens.offset(3));
+        assertEquals(9, tokens.length(3));
+        assertEquals("ola mundo", tokens.lexeme(3));
+        assertEquals(TokenType.NUMBER, tokens.type(10));
+        assertEquals("42", tokens.lexeme(10));
+        assertEquals(2, tokens.line(10));
+        assertEquals(TokenType.EOF, tokens.type(13));
+    }
+
+    @Test
+    public void testTokenBufferWithSquareGame() throws IOException {
+        var input = fromFile("Square/SquareGame.jack").getBytes(StandardCharsets.UTF_8);
+
+        var scanner = new Scanner(input);
+        var tokens = new Scanner(input).tokenize();
+
+        int i = 0;
+        for (Token tk = scanner.nextToken(); tk.type != TokenType.EOF; tk = scanner.nextToken(), i++) {
+            var buffered = tokens.token(i);
+            assertEquals(tk.type, buffered.type);
+            assertEquals(tk.lexeme, buffered.lexeme);
+            assertEquals(tk.line, buffered.line);
+        }
+        assertEquals(i + 1, tokens.size());
+    }
+
+    @Test
+    public void testKeywords () {
+        for (TokenType type : TokenType.values()) {
+            if (TokenType.isKeyword(type)) {
+                byte[] word = TokenType.lexeme(type).getBytes(StandardCharsets.UTF_8);
+                assertEquals(type, Scanner.keyword(ByteBuffer.wrap(word), 0, word.length));
+            }
+        }
+
+        for (String word : new String[] {"d", "iff", "thus", "fals", "fields", "Class", "constructo", "returns", "x"}) {
+            byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+            assertEquals(TokenType.IDENT, Scanner.keyword(ByteBuffer.wrap(bytes), 0, bytes.length));
+        }
+    }
+
+    @Test
+    public void testMappedFile() throws IOException {
+        var input = fromFile("Square/Square.jack");
+
+        var scanner = new Scanner(input.getBytes(StandardCharsets.UTF_8));
+        var mapped = new Scanner(resource("Square/Square.jack"));
+
+        for (Token tk = scanner.nextToken(); tk.type != TokenType.EOF; tk = scanner.nextToken()) {
+            var other = mapped.nextToken();
+            assertEquals(tk.type, other.type);
+            assertEquals(tk.lexeme, other.lexeme);
+            assertEquals(tk.line, other.line);
+        }
+        assertEquals(TokenType.EOF, mapped.nextToken().type);
+    }
+
+    @Test
+    public void testInternedIdentifiers() {
+        var input = "let size = size + x; do draw(size, x);".getBytes(StandardCharsets.UTF_8);
+
+        var scanner = new Scanner(input);
+        scanner.nextToken();
+        Token first = scanner.nextToken();
+        scanner.nextToken();
+        Token second = scanner.nextToken();
+        assertEquals("size", first.lexeme);
+        assertSame(first.lexeme, second.lexeme);
+
+        var names = new NamePool();
+        var tokens = new Scanner(ByteBuffer.wrap(input), names).tokenize();
+        assertSame(tokens.lexeme(1), tokens.lexeme(3));
+        assertSame(tokens.lexeme(5), tokens.lexeme(12));
+        assertSame(tokens.lexeme(1), tokens.lexeme(10));
+        assertEquals("draw", tokens.lexeme(8));
+        assertEquals(3, names.size()); // size, x, draw
+    }
+
+    @Test
+    public void testManyComments() {
+        var sb = new StringBuilder();
+        for (int i = 0; i < 200000; i++) {
+            sb.append(i % 2 == 0 ? "// linha\n" : "/* bloco */\n");
+        }
+        sb.append("let x = 1 / 2;");
+
+        var scanner = new Scanner(sb.toString().getBytes(StandardCharsets.UTF_8));
+        Token tk = scanner.nextToken();
+        assertEquals(TokenType.LET, tk.type);
+        assertEquals(200001, tk.line);
+    }
+
+    @Test
+    public void testCommentBoundaries() {
+        // "*/" e '\n' em todas as posicoes de uma palavra de 8 bytes, estrelas antes do fim
+        var sb = new StringBuilder();
+        int lines = 1;
+        for (int pad = 0; pad < 9; pad++) {
+            sb.append("/*").append("a".repeat(pad)).append("\n ** /*\n").append("b".repeat(pad)).append("**/ x\n");
+            sb.append("//").append("c".repeat(pad)).append(" */\n");
+            lines += 4;
+        }
+        sb.append("/ y");
+
+        var tokens = new Scanner(sb.toString().getBytes(StandardCharsets.UTF_8)).tokenize();
+        for (int i = 0; i < 9; i++) {
+            assertEquals("x", tokens.lexeme(i));
+            assertEquals(4 * i + 3, tokens.line(i));
+        }
+        assertEquals(TokenType.SLASH, tokens.type(9));
+        assertEquals("y", tokens.lexeme(10));
+        assertEquals(lines, tokens.line(10));
+        assertEquals(TokenType.EOF, tokens.type(11));
+    }
+
+    @Test
+    public void testUnterminatedComment() {
+        var input = "let x;\n/* sem fim\n let y;\n".getBytes(StandardCharsets.UTF_8);
+        var tokens = new Scanner(input).tokenize();
+        assertEquals(TokenType.SEMICOLON, tokens.type(2));
+        assertEquals(TokenType.ILLEGAL, tokens.type(3));
+        assertEquals("/*", tokens.lexeme(3));
+        assertEquals(2, tokens.line(3));
+        assertEquals(TokenType.EOF, tokens.type(4));
+    }
+
 }
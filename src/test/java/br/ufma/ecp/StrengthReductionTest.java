@@ -0,0 +1,116 @@
+package br.ufma.ecp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class StrengthReductionTest {
+
+    private String compileExpression(String input, Optimization... optimizations) {
+        var parser = new Parser(input.getBytes(StandardCharsets.UTF_8));
+        parser.enable(optimizations);
+        parser.parseExpression();
+        return parser.VMOutput();
+    }
+
+    private String compileExpression(String input) {
+        return compileExpression(input, Optimization.STRENGTH_REDUCTION);
+    }
+
+    @Test
+    public void powerOfTwoTest() {
+        var expected = """
+            push pointer 0
+            pop temp 2
+            push temp 2
+            push temp 2
+            add
+            pop temp 2
+            push temp 2
+            push temp 2
+            add
+            pop temp 2
+            push temp 2
+            push temp 2
+            add
+            """;
+        assertEquals(expected, compileExpression("this * 8"));
+        assertEquals(expected, compileExpression("8 * this"));
+    }
+
+    @Test
+    public void smallFactorTest() {
+        var expected = """
+            push pointer 0
+            pop temp 1
+            push temp 1
+            pop temp 2
+            push temp 2
+            push temp 2
+            add
+            push temp 1
+            add
+            """;
+        assertEquals(expected, compileExpression("this * 3"));
+    }
+
+    @Test
+    public void identityTest() {
+        assertEquals("push pointer 0\n", compileExpression("this * 1"));
+        assertEquals("push pointer 0\n", compileExpression("1 * this"));
+        assertEquals("push pointer 0\n", compileExpression("this / 1"));
+        assertEquals("push pointer 0\nneg\n",
+                compileExpression("this * -1", Optimization.STRENGTH_REDUCTION, Optimization.CONSTANT_FOLDING));
+    }
+
+    @Test
+    public void zeroTest() {
+        var expected = """
+            push pointer 0
+            pop temp 1
+            push constant 0
+            """;
+        assertEquals(expected, compileExpression("this * 0"));
+        assertEquals(expected, compileExpression("0 * this"));
+    }
+
+    @Test
+    public void largeFactorTest() {
+        var expected = """
+            push pointer 0
+            push constant 100
+            call Math.multiply 2
+            """;
+        assertEquals(expected, compileExpression("this * 100"));
+        assertEquals("push pointer 0\npush constant 4\ncall Math.divide 2\n", compileExpression("this / 4"));
+    }
+
+    @Test
+    public void constantOperandsTest() {
+        var expected = """
+            push constant 200
+            push constant 300
+            call Math.multiply 2
+            """;
+        assertEquals(expected, compileExpression("200 * 300"));
+        assertEquals("push constant 6\n",
+                compileExpression("2 * 3", Optimization.STRENGTH_REDUCTION, Optimization.CONSTANT_FOLDING));
+    }
+
+    @Test
+    public void evaluationOrderTest() {
+        var expected = """
+            push constant 1
+            push pointer 0
+            pop temp 2
+            push temp 2
+            push temp 2
+            add
+            add
+            """;
+        assertEquals(expected, compileExpression("1 + (2 * this)"));
+    }
+
+}
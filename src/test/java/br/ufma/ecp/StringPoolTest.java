@@ -0,0 +1,94 @@
+package br.ufma.ecp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class StringPoolTest {
+
+    private static final String INPUT = """
+        class Main {
+            static int count;
+            function void main() {
+                do Output.printString("ok");
+                do Output.printString("ok");
+                return;
+            }
+            function void other() {
+                do Output.printString("no");
+                return;
+            }
+        }
+        """;
+
+    private static final String EXPECTED = """
+        function Main.main 0
+        push static 1
+        if-goto STRING0
+        push constant 2
+        call String.new 1
+        push constant 111
+        call String.appendChar 2
+        push constant 107
+        call String.appendChar 2
+        pop static 1
+        label STRING0
+        push static 1
+        call Output.printString 1
+        pop temp 0
+        push static 1
+        if-goto STRING1
+        push constant 2
+        call String.new 1
+        push constant 111
+        call String.appendChar 2
+        push constant 107
+        call String.appendChar 2
+        pop static 1
+        label STRING1
+        push static 1
+        call Output.printString 1
+        pop temp 0
+        push constant 0
+        return
+        function Main.other 0
+        push static 2
+        if-goto STRING0
+        push constant 2
+        call String.new 1
+        push constant 110
+        call String.appendChar 2
+        push constant 111
+        call String.appendChar 2
+        pop static 2
+        label STRING0
+        push static 2
+        call Output.printString 1
+        pop temp 0
+        push constant 0
+        return
+        """;
+
+    @Test
+    public void parserTest() {
+        var parser = new Parser(INPUT.getBytes(StandardCharsets.UTF_8));
+        parser.enable(Optimization.STRING_POOL);
+        parser.parser();
+        assertEquals(EXPECTED, parser.VMOutput());
+    }
+
+    @Test
+    public void codeGeneratorTest() {
+        assertEquals(EXPECTED, CodeGenerator.compile(INPUT.getBytes(StandardCharsets.UTF_8), Optimization.STRING_POOL));
+    }
+
+    @Test
+    public void disabledTest() {
+        var vm = CodeGenerator.compile(INPUT.getBytes(StandardCharsets.UTF_8));
+        assertEquals(3, vm.split("call String.new", -1).length - 1);
+        assertEquals(false, vm.contains("static"));
+    }
+
+}
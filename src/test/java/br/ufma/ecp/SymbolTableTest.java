@@ -0,0 +1,56 @@
+package br.ufma.ecp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import br.ufma.ecp.SymbolTable.Kind;
+import br.ufma.ecp.SymbolTable.Symbol;
+
+public class SymbolTableTest {
+
+    @Test
+    public void scopesTest() {
+        var symTable = new SymbolTable();
+        symTable.define("x", "int", Kind.FIELD);
+        symTable.define("count", "int", Kind.STATIC);
+        symTable.define("y", "int", Kind.FIELD);
+
+        symTable.startSubroutine();
+        symTable.define("x", "boolean", Kind.ARG); // esconde o campo
+        symTable.define("i", "int", Kind.VAR);
+
+        assertEquals(new Symbol("x", "boolean", Kind.ARG, 0), symTable.resolve("x"));
+        assertEquals(new Symbol("y", "int", Kind.FIELD, 1), symTable.resolve(new String("y")));
+        assertEquals(new Symbol("count", "int", Kind.STATIC, 0), symTable.resolve("count"));
+        assertNull(symTable.resolve("Output"));
+        assertNull(symTable.resolve(null));
+
+        symTable.startSubroutine();
+        assertEquals(Kind.FIELD, symTable.resolve("x").kind());
+        assertNull(symTable.resolve("i"));
+        assertEquals(0, symTable.varCount(Kind.VAR));
+        assertEquals(2, symTable.varCount(Kind.FIELD));
+    }
+
+    @Test
+    public void growTest() {
+        var symTable = new SymbolTable();
+        for (int i = 0; i < 100; i++) {
+            symTable.define("v" + i, "int", Kind.VAR);
+        }
+        assertEquals(100, symTable.varCount(Kind.VAR));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, symTable.resolve("v" + i).index());
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void redefinitionTest() {
+        var symTable = new SymbolTable();
+        symTable.define("a", "int", Kind.VAR);
+        symTable.define("a", "char", Kind.VAR);
+    }
+
+}
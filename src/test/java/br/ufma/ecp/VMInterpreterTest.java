@@ -0,0 +1,164 @@
+package br.ufma.ecp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.Test;
+
+import br.ufma.ecp.ast.AstParser;
+
+public class VMInterpreterTest extends TestSupport {
+
+    private static final String POINT = """
+        class Point {
+            field int x, y;
+            static int count;
+
+            constructor Point new(int ax, int ay) {
+                let x = ax;
+                let y = ay;
+                let count = count + 1;
+                return this;
+            }
+
+            method int norm1() {
+                return Math.abs(x) + Math.abs(y);
+            }
+
+            function int count() {
+                return count;
+            }
+        }
+        """;
+
+    private static final String MAIN = """
+        class Main {
+            function int fib(int n) {
+                if (n < 2) {
+                    return n;
+                }
+                return Main.fib(n - 1) + Main.fib(n - 2);
+            }
+
+            function void main() {
+                var Array points;
+                var Point p;
+                var int i, sum;
+                let points = Array.new(4);
+                let i = 0;
+                while (i < 4) {
+                    let points[i] = Point.new(i * 8, -(i + 1));
+                    let i = i + 1;
+                }
+                let i = 0;
+                let sum = 0;
+                while (i < 4) {
+                    let p = points[i];
+                    let sum = sum + p.norm1();
+                    let i = i + 1;
+                }
+                do Output.printString("sum=");
+                do Output.printInt(sum);
+                do Output.println();
+                do Output.printString("fib=");
+                do Output.printInt(Main.fib(12));
+                do Output.printChar(33);
+                do Output.printInt(Point.count());
+                return;
+            }
+        }
+        """;
+
+    private static void compile(VMInterpreter vm, String source, Optimization... optimizations) {
+        var parser = new AstParser(new Scanner(source.getBytes(StandardCharsets.UTF_8)).tokenize());
+        int root = parser.parseClass();
+        var generator = new CodeGenerator(parser.ast(), vm.writer());
+        generator.enable(optimizations);
+        generator.generate(root);
+    }
+
+    private static VMInterpreter program(Optimization... optimizations) {
+        var vm = new VMInterpreter();
+        compile(vm, POINT, optimizations);
+        compile(vm, MAIN, optimizations);
+        vm.run("Main.main", 10_000_000);
+        return vm;
+    }
+
+    @Test
+    public void programTest() {
+        var vm = program();
+        assertEquals("sum=58\nfib=144!4", vm.output());
+        assertTrue(vm.profile().get("Main.fib") > vm.profile().get("Main.main"));
+    }
+
+    @Test
+    public void optimizationsTest() {
+        for (var optimization : Optimization.values()) {
+            assertEquals(program().output(), program(optimization).output());
+        }
+
+        var plain = program();
+        var folded = program(Optimization.CONSTANT_FOLDING, Optimization.STRENGTH_REDUCTION);
+        assertEquals(4L, (long) plain.profile().get("Math.multiply")); // i * 8
+        assertEquals(null, folded.profile().get("Math.multiply"));
+        assertEquals(plain.profile().get("Main.fib"), folded.profile().get("Main.fib"));
+    }
+
+    @Test
+    public void vmTextTest() {
+        var vm = new VMInterpreter();
+        vm.load("""
+            function Main.twice 0
+            push argument 0
+            push argument 0
+            add
+            return
+            function Main.main 1
+            push constant 0
+            pop local 0
+            label LOOP
+            push local 0
+            push constant 3
+            lt
+            not
+            if-goto END
+            push local 0
+            call Main.twice 1
+            pop static 0
+            push local 0
+            push constant 1
+            add
+            pop local 0
+            goto LOOP
+            label END
+            push static 0 // 2 * 2
+            return
+            """);
+        assertEquals(4, vm.run("Main.main", 1000));
+        // main: 3 na entrada (rotulos nao executam), 13 por volta, 7 na saida; twice: 5 por chamada
+        assertEquals(Map.of("Main.main", 3L + 3 * 13 + 7, "Main.twice", 3 * 5L), vm.profile());
+        assertEquals(3 + 3 * 13 + 7 + 3 * 5, vm.instructions());
+    }
+
+    @Test
+    public void limitTest() {
+        var vm = new VMInterpreter();
+        vm.load("""
+            function Main.main 0
+            label LOOP
+            goto LOOP
+            """);
+        try {
+            vm.run("Main.main", 1000);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("instruction limit reached in Main.main", e.getMessage());
+        }
+    }
+
+}